@@ -0,0 +1,83 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.system;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Keeps at most <code>size</code> asynchronous tasks in flight, for a caller thread producing them from a blocking
+ * source (e.g. a paged scan).
+ *
+ * Unlike {@link FanOut}, the caller thread starts every task and blocks while the window is full, so the source is
+ * never iterated from the threads completing the tasks.
+ */
+public final class AsyncWindow {
+
+    private final int size;
+    private final Semaphore permits;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public AsyncWindow(int size) {
+        this.size = Math.max(size, 1);
+        this.permits = new Semaphore(this.size);
+    }
+
+    /**
+     * Starts a task, once fewer than <code>size</code> tasks are in flight.
+     *
+     * @throws CompletionException with the failure of an earlier task, no further task is started
+     */
+    public void submit(Supplier<? extends CompletionStage<?>> task) {
+        permits.acquireUninterruptibly();
+        try {
+            rethrow();
+
+            task.get().whenComplete((result, error) -> {
+                if (error != null) {
+                    failure.compareAndSet(null, error);
+                }
+                permits.release();
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the tasks in flight.
+     *
+     * @throws CompletionException with the first failure of a task
+     */
+    public void drain() {
+        permits.acquireUninterruptibly(size);
+        permits.release(size);
+
+        rethrow();
+    }
+
+    private void rethrow() {
+        final Throwable error = failure.get();
+        if (error != null) {
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        }
+    }
+}
@@ -22,6 +22,11 @@ public class ConfigurationEnvironment {
 	private final Logger logger = LoggerFactory.getLogger(ConfigurationEnvironment.class);
 
 	public static final String PROPERTIES_DOCUMENTS_QUERY_DAYS = "aerogear.config.documents.query.period.days";
+	public static final String PROPERTIES_DOCUMENTS_QUERY_CONCURRENCY = "aerogear.config.documents.query.concurrency";
+	public static final String PROPERTIES_DOCUMENTS_FETCH_SIZE = "aerogear.config.documents.query.fetch.size";
+	public static final String PROPERTIES_ALIASES_IMPORT_CONCURRENCY = "aerogear.config.aliases.import.concurrency";
+	public static final String PROPERTIES_DELETION_CONCURRENCY = "aerogear.config.deletion.concurrency";
+	public static final String PROPERTIES_DELETION_CHECKPOINT = "aerogear.config.deletion.checkpoint.users";
 	public static final String PROP_ENABLE_VERIFICATION = "aerogear.config.verification.enable_verification";
 	public static final String PROP_MASTER_VERIFICATION = "aerogear.config.verification.master_code";
 	public static final String PROP_PORTAL_MODE= "aerobase.config.portal.mode";
@@ -55,6 +60,45 @@ public class ConfigurationEnvironment {
 		return env.getProperty(PROPERTIES_DOCUMENTS_QUERY_DAYS, Integer.class, 31);
 	}
 
+	/*
+	 * Number of users (partitions) queried concurrently by multi-user document
+	 * queries.
+	 */
+	public Integer getQueryConcurrency() {
+		return env.getProperty(PROPERTIES_DOCUMENTS_QUERY_CONCURRENCY, Integer.class, 32);
+	}
+
+	/*
+	 * Number of documents fetched per page by streamed document queries,
+	 * documents are up to documents_json_limit KB each.
+	 */
+	public Integer getDocumentsFetchSize() {
+		return env.getProperty(PROPERTIES_DOCUMENTS_FETCH_SIZE, Integer.class, 256);
+	}
+
+	/*
+	 * Number of aliases resolved and written concurrently by bulk alias
+	 * imports.
+	 */
+	public Integer getAliasImportConcurrency() {
+		return env.getProperty(PROPERTIES_ALIASES_IMPORT_CONCURRENCY, Integer.class, 32);
+	}
+
+	/*
+	 * Number of partition deletes in flight while deleting an application.
+	 */
+	public Integer getDeletionConcurrency() {
+		return env.getProperty(PROPERTIES_DELETION_CONCURRENCY, Integer.class, 16);
+	}
+
+	/*
+	 * Number of users deleted between two checkpoints of an application
+	 * deletion.
+	 */
+	public Integer getDeletionCheckpointInterval() {
+		return env.getProperty(PROPERTIES_DELETION_CHECKPOINT, Integer.class, 1000);
+	}
+
 	public String getProperty(String key, String defaultValue) {
 		return env.getProperty(key, defaultValue);
 	}
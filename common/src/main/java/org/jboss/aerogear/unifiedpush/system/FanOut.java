@@ -0,0 +1,125 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.system;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous task per item with at most <code>window</code> tasks in flight.
+ *
+ * Nothing blocks: each of the <code>window</code> lanes starts the task of the next pending item when its previous
+ * task completes, on the thread which completed it. Callers merge the results as they arrive, from the tasks
+ * themselves.
+ */
+public final class FanOut {
+
+    private FanOut() {
+        // no-op
+    }
+
+    /**
+     * Starts the task of every item, keeping at most <code>window</code> of them in flight.
+     *
+     * @return a future completed once all tasks completed, or exceptionally with the first failure, after which no
+     *         further task is started
+     */
+    public static <T> CompletableFuture<Void> forEach(Collection<T> items, int window,
+                                                      Function<? super T, ? extends CompletionStage<?>> task) {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        if (items.isEmpty()) {
+            done.complete(null);
+            return done;
+        }
+
+        final Lanes<T> lanes = new Lanes<>(items.iterator(), Math.min(Math.max(window, 1), items.size()), task, done);
+        lanes.start();
+        return done;
+    }
+
+    private static final class Lanes<T> {
+        private static final Object END = new Object();
+
+        private final Iterator<T> pending;
+        private final Function<? super T, ? extends CompletionStage<?>> task;
+        private final CompletableFuture<Void> done;
+        private int running;
+
+        Lanes(Iterator<T> pending, int lanes, Function<? super T, ? extends CompletionStage<?>> task,
+              CompletableFuture<Void> done) {
+            this.pending = pending;
+            this.running = lanes;
+            this.task = task;
+            this.done = done;
+        }
+
+        void start() {
+            for (int i = 0, lanes = running; i < lanes; i++) {
+                drive();
+            }
+        }
+
+        // Loops over tasks which complete synchronously, instead of recursing through their callbacks.
+        @SuppressWarnings("unchecked")
+        private void drive() {
+            Object item;
+            while ((item = next()) != END) {
+                final CompletableFuture<?> future;
+                try {
+                    future = task.apply((T) item).toCompletableFuture();
+                } catch (RuntimeException e) {
+                    done.completeExceptionally(e);
+                    return;
+                }
+
+                if (!future.isDone()) {
+                    future.whenComplete((result, error) -> {
+                        if (error != null) {
+                            done.completeExceptionally(error);
+                        } else {
+                            drive();
+                        }
+                    });
+                    return;
+                }
+
+                if (future.isCompletedExceptionally()) {
+                    future.whenComplete((result, error) -> done.completeExceptionally(error));
+                    return;
+                }
+            }
+        }
+
+        private synchronized Object next() {
+            if (done.isDone()) {
+                return END;
+            }
+
+            if (pending.hasNext()) {
+                return pending.next();
+            }
+
+            if (--running == 0) {
+                done.complete(null);
+            }
+            return END;
+        }
+    }
+}
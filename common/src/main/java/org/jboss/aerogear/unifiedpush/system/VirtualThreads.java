@@ -0,0 +1,190 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.system;
+
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opt-in execution of blocking tasks (HTTP requests to push networks, database cleanups) on virtual threads.
+ *
+ * Enabled by <code>-Daerogear.virtualThreads=true</code>, on JDKs which provide virtual threads; on older JDKs the
+ * callers keep using their thread pools. The JDK API is looked up reflectively, the code base is compiled for Java 8.
+ *
+ * Virtual threads are cheap, but the push networks and the database are not: every executor created by
+ * {@link #newLimitedExecutor()} runs at most <code>aerogear.virtualThreads.maxInFlight</code> (default 10000) tasks at a
+ * time, further tasks wait for a permit. Each executor has its own permits, so a task waiting for subtasks of another
+ * executor cannot starve them. Executors of {@link #newExecutor()} and threads of {@link #newThreadFactory(String)}
+ * are not capped, their callers bound the number of tasks themselves.
+ */
+public final class VirtualThreads {
+
+    public static final String VIRTUAL_THREADS = "aerogear.virtualThreads";
+    public static final String MAX_IN_FLIGHT = "aerogear.virtualThreads.maxInFlight";
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = lookupExecutorFactory();
+    private static final boolean enabled = Boolean.parseBoolean(tryGetProperty(VIRTUAL_THREADS, "false"));
+    private static final int maxInFlight = tryGetIntegerProperty(MAX_IN_FLIGHT, 10000);
+
+    static {
+        if (enabled && NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            logger.warn("-D{}=true is ignored, virtual threads are not supported by this JDK", VIRTUAL_THREADS);
+        }
+    }
+
+    private VirtualThreads() {
+        // no-op
+    }
+
+    /**
+     * @return <code>true</code> if virtual threads are enabled and supported by the JDK
+     */
+    public static boolean isEnabled() {
+        return enabled && isSupported();
+    }
+
+    /**
+     * @return <code>true</code> if the JDK supports virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task, for callers which bound their number of tasks themselves.
+     *
+     * @return the executor
+     * @throws IllegalStateException if the JDK does not support virtual threads
+     */
+    public static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("virtual threads are not supported by this JDK");
+        }
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task. Every task holds one of the
+     * <code>aerogear.virtualThreads.maxInFlight</code> permits of this executor while it runs.
+     *
+     * @return the executor
+     * @throws IllegalStateException if the JDK does not support virtual threads
+     */
+    public static ExecutorService newLimitedExecutor() {
+        return new InFlightLimitedExecutorService(newExecutor(), new Semaphore(maxInFlight));
+    }
+
+    /**
+     * Creates a factory of virtual threads, for thread pools which bound their number of threads themselves.
+     * Threads created by the factory are not capped.
+     *
+     * @param prefix the name of the threads, followed by a counter
+     * @return the thread factory
+     * @throws IllegalStateException if the JDK does not support virtual threads
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("virtual threads are not supported by this JDK");
+        }
+
+        try {
+            // the builder implementation is not public, its methods are called through the public interface
+            final Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Object namedBuilder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(namedBuilder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("unable to create virtual thread factory", e);
+        }
+    }
+
+    private static Method lookupExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static final class InFlightLimitedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore inFlight;
+
+        InFlightLimitedExecutorService(ExecutorService delegate, Semaphore inFlight) {
+            this.delegate = delegate;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                // parking a virtual thread is cheap, waiting tasks do not occupy a carrier thread
+                inFlight.acquireUninterruptibly();
+                try {
+                    command.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class AsyncWindowTest {
+
+    @Test
+    public void shouldBlockWhileFull() throws Exception {
+        final AsyncWindow window = new AsyncWindow(2);
+        final Queue<CompletableFuture<Void>> inFlight = new ConcurrentLinkedQueue<>();
+        final AtomicInteger started = new AtomicInteger();
+
+        final ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            producer.submit(() -> {
+                for (int i = 0; i < 3; i++) {
+                    window.submit(() -> {
+                        started.incrementAndGet();
+                        final CompletableFuture<Void> future = new CompletableFuture<>();
+                        inFlight.add(future);
+                        return future;
+                    });
+                }
+            });
+
+            Thread.sleep(200);
+            assertThat(started.get()).isEqualTo(2);
+
+            inFlight.poll().complete(null);
+            Thread.sleep(200);
+            assertThat(started.get()).isEqualTo(3);
+        } finally {
+            inFlight.forEach(future -> future.complete(null));
+            producer.shutdown();
+            producer.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        window.drain();
+    }
+
+    @Test
+    public void shouldReportFailure() {
+        final AsyncWindow window = new AsyncWindow(4);
+        final CompletableFuture<Void> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("boom"));
+
+        window.submit(() -> CompletableFuture.completedFuture(null));
+        window.submit(() -> failed);
+
+        try {
+            window.drain();
+            fail("failure of a task not reported");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).hasMessage("boom");
+        }
+
+        try {
+            window.submit(() -> CompletableFuture.completedFuture(null));
+            fail("task started after a failure");
+        } catch (CompletionException e) {
+            assertThat(e.getCause()).hasMessage("boom");
+        }
+    }
+}
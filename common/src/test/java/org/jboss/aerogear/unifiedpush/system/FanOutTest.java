@@ -0,0 +1,103 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.system;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class FanOutTest {
+
+    @Test
+    public void shouldBoundTasksInFlight() throws Exception {
+        final List<Integer> items = range(20);
+        final Queue<CompletableFuture<Void>> inFlight = new ConcurrentLinkedQueue<>();
+        final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+
+        final CompletableFuture<Void> done = FanOut.forEach(items, 4, item -> {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            started.add(item);
+            inFlight.add(future);
+            return future;
+        });
+
+        while (!done.isDone()) {
+            assertThat(inFlight.size()).isLessThanOrEqualTo(4);
+            inFlight.poll().complete(null);
+        }
+
+        done.get(1, TimeUnit.SECONDS);
+        assertThat(started).containsExactlyElementsOf(items);
+    }
+
+    @Test
+    public void shouldRunSynchronouslyCompletedTasks() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+
+        FanOut.forEach(range(100000), 8, item -> {
+            count.incrementAndGet();
+            return CompletableFuture.completedFuture(item);
+        }).get(5, TimeUnit.SECONDS);
+
+        assertThat(count.get()).isEqualTo(100000);
+    }
+
+    @Test
+    public void shouldStopOnFirstFailure() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final CompletableFuture<Void> done = FanOut.forEach(range(10), 1, item -> {
+            count.incrementAndGet();
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            if (item == 2) {
+                future.completeExceptionally(new IllegalStateException("boom"));
+            } else {
+                future.complete(null);
+            }
+            return future;
+        });
+
+        try {
+            done.get(1, TimeUnit.SECONDS);
+            fail("failure of a task not reported");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).hasMessage("boom");
+        }
+        assertThat(count.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldCompleteWithoutItems() {
+        assertThat(FanOut.forEach(Collections.emptyList(), 4, item -> new CompletableFuture<>()).isDone()).isTrue();
+    }
+
+    private static List<Integer> range(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+}
@@ -161,7 +161,7 @@ public class AuthenticationHelper {
 		if (forceExistingInstallation) {
 			// Variant can't be null at this point.
 			Installation installation = clientInstallationService
-					.findInstallationForVariantByDeviceToken(variant.getVariantID(), deviceToken);
+					.findInstallationForAuthentication(variant.getVariantID(), deviceToken);
 
 			// Installation should always be present and enabled.
 			if (installation == null || installation.isEnabled() == false) {
@@ -1,7 +1,11 @@
 package org.jboss.aerogear.unifiedpush.rest.documents;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
@@ -20,13 +24,11 @@ import javax.ws.rs.core.Response.Status;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
-import org.jboss.aerogear.unifiedpush.api.document.DocumentMetadata;
 import org.jboss.aerogear.unifiedpush.api.document.QueryOptions;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.parser.JsonDocumentContent;
 import org.jboss.aerogear.unifiedpush.rest.AbstractEndpoint;
 import org.jboss.aerogear.unifiedpush.rest.util.HttpBasicHelper;
 import org.jboss.aerogear.unifiedpush.rest.util.PushAppAuthHelper;
-import org.jboss.aerogear.unifiedpush.service.AliasService;
 import org.jboss.aerogear.unifiedpush.service.DocumentService;
 import org.jboss.aerogear.unifiedpush.service.PushApplicationService;
 import org.slf4j.Logger;
@@ -44,8 +46,6 @@ public class DatabaseApplicationEndpoint extends AbstractEndpoint {
 	private PushApplicationService pushApplicationService;
 	@Inject
 	private DocumentService documentService;
-	@Inject
-	private AliasService aliasService;
 
 	/**
 	 * RESTful API for querying aliases documents. The Endpoint is protected
@@ -108,48 +108,58 @@ public class DatabaseApplicationEndpoint extends AbstractEndpoint {
 			return appendAllowOriginHeader(Response.status(Status.BAD_REQUEST), request);
 		}
 
-		final DocumentList docs = new DocumentList();
 		UUID pushApplicationId = UUID.fromString(pushApplication.getPushApplicationID());
 
+		final List<UUID> userIds = new ArrayList<>();
+		final List<String> ignoredIds = Collections.synchronizedList(new ArrayList<>());
+		final List<JsonDocumentContent> documents = Collections.synchronizedList(new ArrayList<>());
+
 		Arrays.asList(uuids).forEach(userId -> {
-			// Validate userId exists with application scope
-			collect(request, docs, new QueryOptions(fromDate, toDate, id, limit), pushApplicationId, database, userId);
+			UUID uuid = parse(userId, pushApplicationId, database);
+			if (uuid != null)
+				userIds.add(uuid);
+			else if (StringUtils.isNotEmpty(userId))
+				ignoredIds.add(userId);
 		});
 
-		if (docs.getDocuments().size() > 0)
-			return appendAllowOriginHeader(
-				DatabaseEndpoint.appendCountHeader(Response.ok(docs), docs.getDocuments().size()), request);
+		try {
+			// Validate userId exists with application scope and merge documents
+			// as user partitions are read.
+			documentService.findForAliases(pushApplicationId, database, userIds,
+					new QueryOptions(fromDate, toDate, id, limit), //
+					doc -> documents.add(new JsonDocumentContent(doc.getKey(), doc.getContent(), doc.getDocumentId())), //
+					uuid -> {
+						logger.debug("UserId {} was not found in application {} scope", uuid, pushApplicationId);
+						ignoredIds.add(uuid.toString());
+					}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return appendAllowOriginHeader(Response.status(Status.SERVICE_UNAVAILABLE), request);
+		} catch (ExecutionException e) {
+			logger.error(String.format("Cannot query documents for database %s, application %s", database,
+					pushApplicationId), e.getCause());
+			return appendAllowOriginHeader(Response.status(Status.INTERNAL_SERVER_ERROR), request);
+		}
+
+		if (documents.size() > 0)
+			return appendAllowOriginHeader(DatabaseEndpoint.appendCountHeader(
+					Response.ok(new DocumentListOutput(documents, ignoredIds)), documents.size()), request);
 		else
 			return appendAllowOriginHeader(Response.noContent(), request);
 	}
 
-	private void collect(HttpServletRequest request, DocumentList docs, //
-			QueryOptions options, //
-			UUID pushApplicationId, //
-			String database, //
-			String userId) { //
-
-		if (StringUtils.isEmpty(userId)){
-			logger.warn("UserId (UUID) is null or empty for ApplicationId {}, and database {} ", pushApplicationId, database);
-			return;
+	private UUID parse(String userId, UUID pushApplicationId, String database) {
+		if (StringUtils.isEmpty(userId)) {
+			logger.warn("UserId (UUID) is null or empty for ApplicationId {}, and database {} ", pushApplicationId,
+					database);
+			return null;
 		}
 
 		try {
-			UUID uuid = UUID.fromString(userId);
-
-			if (aliasService.find(pushApplicationId, uuid) != null) {
-				DocumentMetadata metadata = new DocumentMetadata(pushApplicationId, database, uuid);
-				documentService.find(metadata, options).forEach(doc -> {
-					docs.getDocuments()
-							.add(new JsonDocumentContent(doc.getKey(), doc.getContent(), doc.getDocumentId()));
-				});
-			} else {
-				logger.debug("UserId {} was not found in application {} scope", userId, pushApplicationId);
-				docs.ignore(uuid.toString());
-			}
+			return UUID.fromString(userId);
 		} catch (IllegalArgumentException e) {
 			logger.debug("Unable to parse UUID {}", userId);
-			docs.ignore(userId);
+			return null;
 		}
 	}
 }
@@ -1,6 +1,5 @@
 package org.jboss.aerogear.unifiedpush.rest.documents;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -584,6 +583,7 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 	 * @responseheader Access-Control-Allow-Origin With host in your "Origin"
 	 *                 header
 	 * @responseheader Access-Control-Allow-Credentials true
+	 * @responseheader X-AB-Count Number of documents matching the query.
 	 * @responseheader WWW-Authenticate Basic realm="AeroBase Server" (only for
 	 *                 401 response)
 	 *
@@ -604,7 +604,7 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 			@QueryParam("limit") Integer limit, //
 			@HeaderParam("Accept") String accept, //
 			@Context HttpServletRequest request) { //
-		return get(request, new QueryOptions(fromDate, toDate, id, limit), accept, false, database, null);
+		return get(request, new QueryOptions(fromDate, toDate, id, limit), accept, true, database, null);
 	}
 
 	/**
@@ -635,6 +635,9 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 	 * @responseheader Access-Control-Allow-Origin With host in your "Origin"
 	 *                 header
 	 * @responseheader Access-Control-Allow-Credentials true
+	 * @responseheader X-AB-Count Number of documents matching the query when it
+	 *                 was counted. The documents are read afterwards, ones
+	 *                 stored or deleted in between make the count approximate.
 	 * @responseheader WWW-Authenticate Basic realm="AeroBase Server" (only for
 	 *                 401 response)
 	 *
@@ -689,6 +692,7 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 	 * @responseheader Access-Control-Allow-Origin With host in your "Origin"
 	 *                 header
 	 * @responseheader Access-Control-Allow-Credentials true
+	 * @responseheader X-AB-Count Number of documents matching the query.
 	 * @responseheader WWW-Authenticate Basic realm="AeroBase Server" (only for
 	 *                 401 response)
 	 *
@@ -743,6 +747,9 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 	 * @responseheader Access-Control-Allow-Origin With host in your "Origin"
 	 *                 header
 	 * @responseheader Access-Control-Allow-Credentials true
+	 * @responseheader X-AB-Count Number of documents matching the query when it
+	 *                 was counted. The documents are read afterwards, ones
+	 *                 stored or deleted in between make the count approximate.
 	 * @responseheader WWW-Authenticate Basic realm="AeroBase Server" (only for
 	 *                 401 response)
 	 *
@@ -834,14 +841,21 @@ public class DatabaseEndpoint extends AbstractEndpoint {
 			String database, //
 			Alias alias) { //
 
-		final List<JsonDocumentContent> docs = new ArrayList<>();
-
 		DocumentMetadata metadata = new DocumentMetadata(pushApplicationId, database, alias);
-		documentService.find(metadata, options).forEach(doc -> {
-			docs.add(new JsonDocumentContent(doc.getKey(), doc.getContent(), doc.getDocumentId()));
-		});
 
-		return new ResponseData(docs.size(), docs, MediaType.APPLICATION_JSON);
+		// X-AB-Count precedes the body, documents are counted first (without
+		// their content). HEAD requests need nothing else. The body is read by
+		// a second query, the count is approximate if documents are stored or
+		// deleted meanwhile.
+		long count = documentService.count(metadata, options);
+		int size = (int) Math.min(count, Integer.MAX_VALUE);
+
+		if (headOnly || size == 0)
+			return new ResponseData(size, null, MediaType.APPLICATION_JSON);
+
+		// Documents are written while paged in, never held all at once.
+		return new ResponseData(size, new DocumentStreamOutput(() -> documentService.find(metadata, options)),
+				MediaType.APPLICATION_JSON);
 	}
 
 	private Alias getAliasByToken(UUID pushApplicationId, String deviceToken) {
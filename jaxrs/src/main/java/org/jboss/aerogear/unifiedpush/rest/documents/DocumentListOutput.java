@@ -0,0 +1,68 @@
+package org.jboss.aerogear.unifiedpush.rest.documents;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.parser.JsonDocumentContent;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes documents in the {@link DocumentList} JSON format straight to the
+ * response stream, one document at a time, without materializing the whole
+ * response body.
+ */
+public final class DocumentListOutput implements StreamingOutput {
+	private static final ObjectMapper mapper = new ObjectMapper();
+	// The container flushes the stream, not every document.
+	private static final ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+	private final List<JsonDocumentContent> documents;
+	private final List<String> ignoredIds;
+
+	public DocumentListOutput(List<JsonDocumentContent> documents, List<String> ignoredIds) {
+		this.documents = documents;
+		this.ignoredIds = ignoredIds;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException, WebApplicationException {
+		try (JsonGenerator generator = createGenerator(output)) {
+			generator.writeStartObject();
+
+			generator.writeArrayFieldStart("documents");
+			for (JsonDocumentContent document : documents) {
+				write(generator, document);
+			}
+			generator.writeEndArray();
+
+			generator.writeArrayFieldStart("ignoredIds");
+			for (String id : ignoredIds) {
+				generator.writeString(id);
+			}
+			generator.writeEndArray();
+
+			generator.writeEndObject();
+		}
+	}
+
+	static JsonGenerator createGenerator(OutputStream output) throws IOException {
+		JsonGenerator generator = mapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+		// Closing the response stream is left to the container.
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+		return generator;
+	}
+
+	static void write(JsonGenerator generator, JsonDocumentContent document) throws IOException {
+		writer.writeValue(generator, document);
+	}
+}
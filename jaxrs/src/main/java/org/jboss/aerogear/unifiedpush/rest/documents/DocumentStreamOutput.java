@@ -0,0 +1,46 @@
+package org.jboss.aerogear.unifiedpush.rest.documents;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.parser.JsonDocumentContent;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes a JSON array of documents straight to the response stream while the
+ * query results are paged in, only the current page is held in memory.
+ *
+ * The query is executed once the response is written, and its stream closed
+ * once done.
+ */
+public final class DocumentStreamOutput implements StreamingOutput {
+	private final Supplier<Stream<DocumentContent>> query;
+
+	public DocumentStreamOutput(Supplier<Stream<DocumentContent>> query) {
+		this.query = query;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException, WebApplicationException {
+		try (JsonGenerator generator = DocumentListOutput.createGenerator(output);
+				Stream<DocumentContent> documents = query.get()) {
+			generator.writeStartArray();
+
+			for (Iterator<DocumentContent> it = documents.iterator(); it.hasNext();) {
+				DocumentContent doc = it.next();
+				DocumentListOutput.write(generator,
+						new JsonDocumentContent(doc.getKey(), doc.getContent(), doc.getDocumentId()));
+			}
+
+			generator.writeEndArray();
+		}
+	}
+}
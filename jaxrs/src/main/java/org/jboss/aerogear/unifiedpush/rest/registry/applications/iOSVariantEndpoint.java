@@ -16,6 +16,8 @@
  */
 package org.jboss.aerogear.unifiedpush.rest.registry.applications;
 
+import java.nio.charset.StandardCharsets;
+
 import javax.inject.Inject;
 import javax.validation.ConstraintViolationException;
 import javax.ws.rs.Consumes;
@@ -96,6 +98,7 @@ public class iOSVariantEndpoint extends AbstractVariantEndpoint {
         iOSVariant.setPassphrase(form.getPassphrase());
         iOSVariant.setCertificate(form.getCertificate());
         iOSVariant.setProduction(form.getProduction());
+        applySigningKey(iOSVariant, form);
 
         // some model validation on the entity:
         try {
@@ -210,6 +213,7 @@ public class iOSVariantEndpoint extends AbstractVariantEndpoint {
             iOSVariant.setPassphrase(updatedForm.getPassphrase());
             iOSVariant.setCertificate(updatedForm.getCertificate());
             iOSVariant.setProduction(updatedForm.getProduction());
+            applySigningKey(iOSVariant, updatedForm);
 
             // update performed, we now need to invalidate existing connection w/ APNs:
             variantUpdateEventEvent.onNext(new iOSVariantUpdateEvent(iOSVariant));
@@ -231,5 +235,10 @@ public class iOSVariantEndpoint extends AbstractVariantEndpoint {
         return Response.status(Status.NOT_FOUND).entity("Could not find requested Variant").build();
     }
 
-
+    private static void applySigningKey(iOSVariant iOSVariant, iOSApplicationUploadForm form) {
+        iOSVariant.setPrivateKey(form.getPrivateKey() != null ? new String(form.getPrivateKey(), StandardCharsets.UTF_8) : null);
+        iOSVariant.setKeyId(form.getKeyId());
+        iOSVariant.setTeamId(form.getTeamId());
+        iOSVariant.setBundleId(form.getBundleId());
+    }
 }
@@ -16,12 +16,24 @@
  */
 package org.jboss.aerogear.unifiedpush.rest.util;
 
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.PreparedStatementRegistry;
 import org.jboss.aerogear.unifiedpush.message.HealthNetworkService;
+import org.jboss.aerogear.unifiedpush.message.NotificationDispatcher;
+import org.jboss.aerogear.unifiedpush.message.cache.SimpleApnsClientCache;
+import org.jboss.aerogear.unifiedpush.message.retry.DispatchRetryScheduler;
+import org.jboss.aerogear.unifiedpush.message.sender.apns.ApnsResponseHandler;
 import org.jboss.aerogear.unifiedpush.service.HealthDBService;
+import org.jboss.aerogear.unifiedpush.service.impl.ApplicationDeletionJob;
 import org.jboss.aerogear.unifiedpush.service.impl.health.HealthDetails;
 import org.jboss.aerogear.unifiedpush.service.impl.health.HealthStatus;
+import org.jboss.aerogear.unifiedpush.spring.WorkloadExecutor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.stereotype.Controller;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
 import javax.inject.Inject;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
@@ -32,7 +44,10 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.jar.Attributes;
@@ -51,6 +66,30 @@ public class HealthCheck {
     @Inject
     private HealthNetworkService healthNetworkService;
 
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private List<WorkloadExecutor> workloadExecutors;
+
+    @Inject
+    private SimpleApnsClientCache apnsClientCache;
+
+    @Inject
+    private ApnsResponseHandler apnsResponseHandler;
+
+    @Inject
+    private NotificationDispatcher notificationDispatcher;
+
+    @Inject
+    private DispatchRetryScheduler retryScheduler;
+
+    @Inject
+    private PreparedStatementRegistry statements;
+
+    @Inject
+    private ApplicationDeletionJob deletionJob;
+
     /**
      * Get health status
      *
@@ -74,6 +113,167 @@ public class HealthCheck {
         return status;
     }
 
+    /**
+     * Local cache statistics of this node, e.g. the hit ratio of cached alias
+     * lookups. Counters are accumulated since startup.
+     *
+     * @return statistics by cache name
+     */
+    @GET
+    @Path("/caches")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Map<String, Number>> caches() {
+        final Map<String, Map<String, Number>> caches = new LinkedHashMap<>();
+
+        cacheManager.getCacheNames().forEach(name -> {
+            final Cache cache = cacheManager.getCache(name);
+            if (!(cache instanceof CaffeineCache)) {
+                return;
+            }
+
+            final com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+            final CacheStats stats = nativeCache.stats();
+
+            final Map<String, Number> details = new LinkedHashMap<>();
+            details.put("size", nativeCache.estimatedSize());
+            details.put("hits", stats.hitCount());
+            details.put("misses", stats.missCount());
+            details.put("hitRatio", stats.hitRate());
+            details.put("evictions", stats.evictionCount());
+            caches.put(name, details);
+        });
+
+        return caches;
+    }
+
+    /**
+     * Load of the executors running the asynchronous work of this node, e.g. registrations.
+     * The rejected counter is accumulated since startup.
+     *
+     * @return statistics by executor name
+     */
+    @GET
+    @Path("/executors")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Map<String, Number>> executors() {
+        final Map<String, Map<String, Number>> executors = new LinkedHashMap<>();
+
+        workloadExecutors.forEach(executor -> {
+            final Map<String, Number> details = new LinkedHashMap<>();
+            details.put("active", executor.getActiveCount());
+            details.put("queued", executor.getQueueDepth());
+            details.put("rejected", executor.getRejectedCount());
+            executors.put(executor.getName(), details);
+        });
+
+        return executors;
+    }
+
+    /**
+     * APNs connections of this node. Counters are accumulated since startup.
+     *
+     * @return statistics of the cached APNs connections
+     */
+    @GET
+    @Path("/apns")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Number> apns() {
+        final Map<String, Number> connections = new LinkedHashMap<>();
+        connections.put("size", apnsClientCache.size());
+        connections.put("hits", apnsClientCache.getHits());
+        connections.put("misses", apnsClientCache.getMisses());
+        connections.put("connects", apnsClientCache.getConnects());
+        connections.put("disconnects", apnsClientCache.getDisconnects());
+
+        return connections;
+    }
+
+    /**
+     * APNs responses received by this node, by iOS variant. Counters are accumulated since startup.
+     *
+     * @return accepted, failed and dropped notifications and the rejections by reason of every variant
+     */
+    @GET
+    @Path("/apns/responses")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Map<String, Object>> apnsResponses() {
+        final Map<String, Map<String, Object>> responses = new TreeMap<>();
+
+        apnsResponseHandler.getStatistics().forEach((variantID, statistics) -> {
+            final Map<String, Object> details = new LinkedHashMap<>();
+            details.put("accepted", statistics.getAccepted());
+            details.put("failed", statistics.getFailed());
+            details.put("dropped", statistics.getDropped());
+            details.put("rejections", new TreeMap<>(statistics.getRejections()));
+            responses.put(variantID, details);
+        });
+
+        return responses;
+    }
+
+    /**
+     * Dispatching of this node: the circuit state of every push network and variant (keyed by
+     * <code>type:variantID</code>) and the batches waiting for another attempt. Counters are accumulated since startup.
+     *
+     * @return circuit states and retry statistics
+     */
+    @GET
+    @Path("/dispatch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Object> dispatch() {
+        final Map<String, Number> retries = new LinkedHashMap<>();
+        retries.put("pending", retryScheduler.getPending());
+        retries.put("scheduled", retryScheduler.getScheduled());
+        retries.put("dropped", retryScheduler.getDropped());
+
+        final Map<String, Object> dispatch = new LinkedHashMap<>();
+        dispatch.put("circuits", new TreeMap<>(notificationDispatcher.getCircuitStates()));
+        dispatch.put("retries", retries);
+
+        return dispatch;
+    }
+
+    /**
+     * Execution latency of the prepared Cassandra statements of this node, in microseconds. Percentiles are the upper
+     * bound of their histogram bucket. Counters are accumulated since startup.
+     *
+     * @return latency statistics by statement name
+     */
+    @GET
+    @Path("/statements")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Map<String, Number>> statements() {
+        final Map<String, Map<String, Number>> latencies = new LinkedHashMap<>();
+
+        statements.getHistograms().forEach((name, histogram) -> {
+            final Map<String, Number> details = new LinkedHashMap<>();
+            details.put("count", histogram.getCount());
+            details.put("mean", histogram.getMeanMicros());
+            details.put("p50", histogram.getPercentileMicros(50));
+            details.put("p99", histogram.getPercentileMicros(99));
+            details.put("max", histogram.getMaxMicros());
+            latencies.put(name, details);
+        });
+
+        return latencies;
+    }
+
+    /**
+     * Application deletions of this node. Counters are accumulated since startup.
+     *
+     * @return number of running deletions and of deleted users
+     */
+    @GET
+    @Path("/deletions")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, Number> deletions() {
+        final Map<String, Number> deletions = new LinkedHashMap<>();
+        deletions.put("running", deletionJob.getRunning());
+        deletions.put("deletedUsers", deletionJob.getDeletedUsers());
+
+        return deletions;
+    }
+
     /**
      * Simple Ping endpoint to check if the UPS is running as expected
      *
@@ -35,6 +35,10 @@ public class iOSApplicationUploadForm {
     private Boolean production; // RestEasy needs 'Boolean' here
     private String passphrase;
     private byte[] certificate;
+    private byte[] privateKey;
+    private String keyId;
+    private String teamId;
+    private String bundleId;
     private String name;
     private String description;
 
@@ -113,6 +117,64 @@ public class iOSApplicationUploadForm {
         this.certificate = data;
     }
 
+    public byte[] getPrivateKey() {
+        return privateKey;
+    }
+
+    /**
+     * Reads the signing key (.p8) file upload from the multipart request,
+     * used for token based authentication instead of a certificate.
+     *
+     * @param data the signing key value
+     */
+    @FormParam("privateKey")
+    @PartType("application/octet-stream")
+    public void setPrivateKey(byte[] data) {
+        this.privateKey = data;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Reads the signing key ID field from the multipart request.
+     *
+     * @param keyId the key ID value
+     */
+    @FormParam("keyId")
+    public void setKeyId(String keyId) {
+        this.keyId = keyId;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    /**
+     * Reads the team ID field from the multipart request.
+     *
+     * @param teamId the team ID value
+     */
+    @FormParam("teamId")
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getBundleId() {
+        return bundleId;
+    }
+
+    /**
+     * Reads the bundle ID field from the multipart request.
+     *
+     * @param bundleId the bundle ID value
+     */
+    @FormParam("bundleId")
+    public void setBundleId(String bundleId) {
+        this.bundleId = bundleId;
+    }
+
     /**
      * Validates whether the certificate/passphrase pair
      * is valid, and does not contain any bogus content.
@@ -121,6 +183,10 @@ public class iOSApplicationUploadForm {
      */
     @AssertTrue(message = "the provided certificate passphrase does not match with the uploaded certificate")
     public boolean isCertificatePassphraseValid() {
+        // token based variants come with a signing key instead of a certificate
+        if (certificate == null && privateKey != null) {
+            return true;
+        }
         try {
             PKCS12.validate(certificate, passphrase);
             return true;
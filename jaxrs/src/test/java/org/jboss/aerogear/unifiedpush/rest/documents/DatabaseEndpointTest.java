@@ -9,11 +9,13 @@ import java.util.stream.Collectors;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.aerogear.unifiedpush.api.Installation;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.parser.JsonDocumentContent;
 import org.jboss.aerogear.unifiedpush.rest.RestEndpointTest;
 import org.jboss.aerogear.unifiedpush.rest.WebConfigTest;
 import org.jboss.aerogear.unifiedpush.rest.util.Authenticator;
@@ -93,6 +95,11 @@ public class DatabaseEndpointTest extends RestEndpointTest {
 			String count = response.getHeaderString(DatabaseEndpoint.X_HEADER_COUNT);
 			Assert.assertTrue(Integer.valueOf(count) == 2);
 
+			// Streamed body holds the counted documents
+			List<JsonDocumentContent> documents = response.readEntity(new GenericType<List<JsonDocumentContent>>() {
+			});
+			assertEquals(2, documents.size());
+
 			response.close();
 
 			// get documents @HEAD /{database}/alias/{alias}
@@ -0,0 +1,116 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.migrator;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Backfills the <code>device_token_hash</code> column of all existing installations.
+ *
+ * The hash has to match <code>org.jboss.aerogear.unifiedpush.utils.DeviceTokenHash</code>:
+ * the first 64 bits (big-endian) of the SHA-256 digest of the UTF-8 encoded token.
+ */
+public class DeviceTokenHashMigration implements CustomTaskChange {
+    private static final int BATCH_SIZE = 1000;
+
+    private String confirmationMessage;
+
+    @Override
+    public String getConfirmationMessage() {
+        return this.confirmationMessage;
+    }
+
+    @Override
+    public void setUp() throws SetupException {
+
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return null;
+    }
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        try {
+            Connection conn = ((JdbcConnection) (database.getConnection())).getWrappedConnection();
+            conn.setAutoCommit(false);
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            // installations are read in pages of BATCH_SIZE ordered by id, every page is committed on its own
+            PreparedStatement select = conn.prepareStatement("select id, device_token from installation where device_token is not null and device_token_hash is null and id > ? order by id");
+            select.setMaxRows(BATCH_SIZE);
+            select.setFetchSize(BATCH_SIZE);
+            PreparedStatement update = conn.prepareStatement("update installation set device_token_hash = ? where id = ?");
+
+            long counter = 0;
+            String lastId = "";
+            int rows;
+            do {
+                select.setString(1, lastId);
+                ResultSet rs = select.executeQuery();
+
+                rows = 0;
+                while (rs.next()) {
+                    lastId = rs.getString(1);
+                    update.setLong(1, hash(digest, rs.getString(2)));
+                    update.setString(2, lastId);
+                    update.addBatch();
+                    rows++;
+                }
+                rs.close();
+
+                update.executeBatch();
+                conn.commit();
+                counter += rows;
+            } while (rows == BATCH_SIZE);
+            update.close();
+            select.close();
+
+            this.confirmationMessage = counter + " device token hashes migrated successfully";
+        } catch (Exception e) {
+            throw new CustomChangeException(e);
+        }
+    }
+
+    private static long hash(MessageDigest digest, String deviceToken) {
+        final byte[] bytes = digest.digest(deviceToken.getBytes(StandardCharsets.UTF_8));
+
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (bytes[i] & 0xFF);
+        }
+        return hash;
+    }
+}
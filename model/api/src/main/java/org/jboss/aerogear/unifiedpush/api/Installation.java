@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.jboss.aerogear.unifiedpush.api.validation.DeviceTokenCheck;
+import org.jboss.aerogear.unifiedpush.utils.DeviceTokenHash;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -36,6 +37,8 @@ public class Installation extends BaseModel {
 
     private boolean enabled = true;
     private String deviceToken;
+    @JsonIgnore
+    private Long deviceTokenHash;
     private String deviceType;
     private String operatingSystem;
     private String osVersion;
@@ -80,6 +83,21 @@ public class Installation extends BaseModel {
      */
     public void setDeviceToken(final String deviceToken) {
         this.deviceToken = deviceToken;
+        this.deviceTokenHash = DeviceTokenHash.of(deviceToken);
+    }
+
+    public Long getDeviceTokenHash() {
+        return deviceTokenHash;
+    }
+
+    /**
+     * Fixed-width hash of the <code>deviceToken</code>, used for indexed lookups.
+     * The value is derived from the token, see {@link DeviceTokenHash}.
+     *
+     * @param deviceTokenHash the hash of the device token
+     */
+    public void setDeviceTokenHash(final Long deviceTokenHash) {
+        this.deviceTokenHash = deviceTokenHash;
     }
 
     public String getDeviceType() {
@@ -16,7 +16,7 @@
  */
 package org.jboss.aerogear.unifiedpush.api;
 
-import javax.validation.constraints.NotNull;
+import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.Size;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -32,15 +32,26 @@ public class iOSVariant extends Variant {
 
     private boolean production;
 
-    @NotNull
     @Size(max = 255, message = "Passphrase must be 1-255 characters long")
     @JsonIgnore
     private String passphrase;
 
-    @NotNull(message = "Certificate must be provided")
     @JsonIgnore
     private String certificateData;
 
+    // token based (.p8 signing key) authentication, used instead of certificate and passphrase
+    @JsonIgnore
+    private String privateKey;
+
+    @Size(max = 255, message = "Key ID must be 1-255 characters long")
+    private String keyId;
+
+    @Size(max = 255, message = "Team ID must be 1-255 characters long")
+    private String teamId;
+
+    @Size(max = 255, message = "Bundle ID must be 1-255 characters long")
+    private String bundleId;
+
     /**
      * If <code>true</code> a connection to Apple's Production APNs server
      * will be established for this iOS variant.
@@ -83,12 +94,89 @@ public class iOSVariant extends Variant {
      */
     @JsonIgnore
     public byte[] getCertificate() {
-        return Base64.getDecoder().decode(certificateData);
+        return certificateData != null ? Base64.getDecoder().decode(certificateData) : null;
     }
 
     @JsonProperty
     public void setCertificate(byte[] cert) {
-        this.certificateData = Base64.getEncoder().encodeToString(cert);
+        this.certificateData = cert != null ? Base64.getEncoder().encodeToString(cert) : null;
+    }
+
+    /**
+     * The APNs signing key (content of the .p8 file) that is used to authenticate
+     * with JSON web tokens instead of a certificate.
+     *
+     * @return the PEM encoded private key
+     */
+    @JsonIgnore
+    public String getPrivateKey() {
+        return privateKey;
+    }
+
+    @JsonProperty
+    public void setPrivateKey(String privateKey) {
+        this.privateKey = privateKey;
+    }
+
+    /**
+     * The ID of the APNs signing key.
+     *
+     * @return the key ID
+     */
+    public String getKeyId() {
+        return keyId;
+    }
+
+    public void setKeyId(String keyId) {
+        this.keyId = keyId;
+    }
+
+    /**
+     * The ID of the Apple developer team owning the signing key and the app.
+     *
+     * @return the team ID
+     */
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    /**
+     * The bundle ID of the app, used as APNs topic when authenticating with a signing key.
+     *
+     * @return the bundle ID
+     */
+    public String getBundleId() {
+        return bundleId;
+    }
+
+    public void setBundleId(String bundleId) {
+        this.bundleId = bundleId;
+    }
+
+    /**
+     * Token based variants authenticate with a signing key, all others with a certificate.
+     *
+     * Connections of token based variants are not bound to the variant and can be shared by all
+     * variants of the same team.
+     *
+     * @return <code>true</code> if a signing key is configured
+     */
+    @JsonIgnore
+    public boolean isTokenBasedAuthentication() {
+        return privateKey != null;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "Either a certificate and passphrase or a signing key, key ID, team ID and bundle ID must be provided")
+    public boolean isCredentialsProvided() {
+        if (isTokenBasedAuthentication()) {
+            return keyId != null && teamId != null && bundleId != null;
+        }
+        return certificateData != null && passphrase != null;
     }
 
     @Override
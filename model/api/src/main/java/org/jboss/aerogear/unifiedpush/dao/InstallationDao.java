@@ -45,6 +45,17 @@ public interface InstallationDao extends GenericBaseDao<Installation, String> {
      */
     List<Installation> findInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens);
 
+    /**
+     * Bulk deletes all installations (and their category references) matching the <code>Set</code> of deviceTokens,
+     * for the given Variant. The installations are not loaded, the deletion is executed in chunks of DML statements.
+     *
+     * @param variantID the variantID for the filter
+     * @param deviceTokens the deviceTokens for the filter
+     *
+     * @return number of deleted installations.
+     */
+    int deleteInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens);
+
     /**
      * Sender API for installations:
      *
@@ -18,6 +18,7 @@ package org.jboss.aerogear.unifiedpush.dao;
 
 import org.jboss.aerogear.unifiedpush.api.Variant;
 
+import java.util.Date;
 import java.util.List;
 
 public interface VariantDao extends GenericBaseDao<Variant, String> {
@@ -59,6 +60,15 @@ public interface VariantDao extends GenericBaseDao<Variant, String> {
      */
     List<Variant> findAllVariantsByIDs(List<String> variantIDs);
 
+    /**
+     * Loads all variants of the push applications, which submitted push messages since the given date.
+     *
+     * @param since the earliest submit date of the push messages
+     *
+     * @return list of recently active variants
+     */
+    List<Variant> findVariantsWithMessagesSince(Date since);
+
     //Admin queries
     boolean existsVariantIDForAdmin(String variantID);
 }
@@ -0,0 +1,82 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Fixed-width hash of a device token, used as an indexable replacement for
+ * equality lookups on the (up to 4096 chars wide) <code>device_token</code> column.
+ *
+ * The hash is the first 64 bits (big-endian) of the SHA-256 digest of the UTF-8 encoded token.
+ * Collisions are possible, therefore lookups must always compare the actual token as well.
+ *
+ * NOTE: the migrator module backfills existing rows with the very same algorithm,
+ * both implementations have to be kept in sync.
+ */
+public final class DeviceTokenHash {
+
+    private DeviceTokenHash() {
+        // no-op
+    }
+
+    /**
+     * Calculates the hash of the given device token.
+     *
+     * @param deviceToken the device token, may be <code>null</code>
+     *
+     * @return the 64-bit token hash or <code>null</code> if no token was given
+     */
+    public static Long of(String deviceToken) {
+        if (deviceToken == null) {
+            return null;
+        }
+
+        final byte[] digest = sha256().digest(deviceToken.getBytes(StandardCharsets.UTF_8));
+
+        long hash = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    /**
+     * Calculates the distinct hashes of all given device tokens.
+     *
+     * @param deviceTokens the device tokens
+     *
+     * @return set of token hashes
+     */
+    public static Set<Long> ofAll(Collection<String> deviceTokens) {
+        return deviceTokens.stream().map(DeviceTokenHash::of).collect(Collectors.toSet());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.jboss.aerogear.unifiedpush.api;
 
+import org.jboss.aerogear.unifiedpush.utils.DeviceTokenHash;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -57,6 +58,18 @@ public class InstallationTest {
         assertThat(deviceInstallation.getPlatform()).isEqualTo("iOS");
     }
 
+    @Test
+    public void deviceTokenHash() {
+        assertThat(deviceInstallation.getDeviceTokenHash()).isEqualTo(DeviceTokenHash.of("1456782"));
+
+        deviceInstallation.setDeviceToken("2345678");
+        assertThat(deviceInstallation.getDeviceTokenHash()).isEqualTo(DeviceTokenHash.of("2345678"));
+        assertThat(deviceInstallation.getDeviceTokenHash()).isNotEqualTo(DeviceTokenHash.of("1456782"));
+
+        deviceInstallation.setDeviceToken(null);
+        assertThat(deviceInstallation.getDeviceTokenHash()).isNull();
+    }
+
     @Test
     public void disable() {
         assertThat(deviceInstallation.isEnabled()).isTrue();
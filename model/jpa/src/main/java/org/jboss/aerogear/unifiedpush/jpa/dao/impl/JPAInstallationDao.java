@@ -24,6 +24,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.persistence.TypedQuery;
 
@@ -37,6 +38,7 @@ import org.jboss.aerogear.unifiedpush.dao.ResultStreamException;
 import org.jboss.aerogear.unifiedpush.dao.ResultsStream;
 import org.jboss.aerogear.unifiedpush.dao.helper.InstallationAlias;
 import org.jboss.aerogear.unifiedpush.dto.Count;
+import org.jboss.aerogear.unifiedpush.utils.DeviceTokenHash;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -56,6 +58,25 @@ public class JPAInstallationDao extends JPABaseDao<Installation, String> impleme
                     + " JOIN installation.variant v"
                     + " WHERE v.variantID = :variantID";
 
+    private static final String FETCH_CATEGORIES = "select distinct installation from Installation installation"
+                    + " left join fetch installation.categories"
+                    + " where installation.id IN :ids";
+
+    // keeps the IN clause of the categories fetch within the limits of all supported databases
+    private static final int FETCH_CATEGORIES_BATCH_SIZE = 500;
+
+    private static final String MATCH_VARIANT_AND_TOKENS = " where variant_id = (select id from variant where api_key = :variantID)"
+                    + " and device_token_hash IN (:deviceTokenHashes)"
+                    + " and device_token IN (:deviceTokens)";
+
+    private static final String DELETE_CATEGORIES_BY_TOKENS = "delete from installation_category"
+                    + " where installation_id IN (select id from installation" + MATCH_VARIANT_AND_TOKENS + ")";
+
+    private static final String DELETE_INSTALLATIONS_BY_TOKENS = "delete from installation" + MATCH_VARIANT_AND_TOKENS;
+
+    // number of device tokens bound to a single bulk delete statement
+    private static final int DELETE_BATCH_SIZE = 500;
+
     @Override
     public PageResult<Installation, Count> findInstallationsByVariantForDeveloper(
             String variantID, String developer, Integer page, Integer pageSize, String search) {
@@ -87,9 +108,26 @@ public class JPAInstallationDao extends JPABaseDao<Installation, String> impleme
         List<Installation> resultList = setParameters(query, parameters).getResultList();
         Long count = setParameters(countQuery, parameters).getSingleResult();
 
+        // categories are lazy, but part of the JSON representation of the page
+        fetchCategories(resultList);
+
         return new PageResult<>(resultList, new Count(count));
     }
 
+    /**
+     * Initializes the (lazy) categories of the given, already managed, installations
+     * using a single fetch-join query per batch, instead of one select per installation.
+     */
+    private void fetchCategories(List<Installation> installations) {
+        final List<String> ids = installations.stream().map(Installation::getId).collect(Collectors.toList());
+
+        for (int i = 0; i < ids.size(); i += FETCH_CATEGORIES_BATCH_SIZE) {
+            createQuery(FETCH_CATEGORIES)
+                    .setParameter("ids", ids.subList(i, Math.min(i + FETCH_CATEGORIES_BATCH_SIZE, ids.size())))
+                    .getResultList();
+        }
+    }
+
     private <X> TypedQuery<X> setParameters(TypedQuery<X> query, Map<String, Object> parameters) {
         parameters.forEach(query::setParameter);
         return query;
@@ -101,11 +139,24 @@ public class JPAInstallationDao extends JPABaseDao<Installation, String> impleme
     }
 
 
+    /**
+     * Loads the installation together with its categories, since single installations
+     * are handed out to the (JSON) clients as a whole.
+     */
+    @Override
+    public Installation find(String id) {
+        return getSingleResultForQuery(createQuery("select installation from Installation installation" +
+                " left join fetch installation.categories" +
+                " where installation.id = :id")
+                .setParameter("id", id));
+    }
+
     @Override
     public Installation findInstallationForVariantByDeviceToken(String variantID, String deviceToken) {
 
         return getSingleResultForQuery(createQuery(getFindVariantByDeviceTokenQuery().toString())
                 .setParameter("variantID", variantID)
+                .setParameter("deviceTokenHash", DeviceTokenHash.of(deviceToken))
                 .setParameter("deviceToken", deviceToken));
     }
 
@@ -117,15 +168,49 @@ public class JPAInstallationDao extends JPABaseDao<Installation, String> impleme
             return Collections.emptyList();
         }
 
+        // the hash narrows the lookup down using the (variant_id, device_token_hash) index,
+        // the token itself is still compared to filter out hash collisions
         return createQuery("select installation from Installation installation " +
                 " join installation.variant abstractVariant " +
                 " where abstractVariant.variantID = :variantID" +
+                " and installation.deviceTokenHash IN :deviceTokenHashes" +
                 " and installation.deviceToken IN :deviceTokens")
                 .setParameter("variantID", variantID)
+                .setParameter("deviceTokenHashes", DeviceTokenHash.ofAll(deviceTokens))
                 .setParameter("deviceTokens", deviceTokens)
                 .getResultList();
     }
 
+    @Override
+    public int deleteInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens) {
+        if (deviceTokens == null || deviceTokens.isEmpty()) {
+            return 0;
+        }
+
+        final List<String> tokens = new ArrayList<>(deviceTokens);
+        int deleted = 0;
+
+        for (int i = 0; i < tokens.size(); i += DELETE_BATCH_SIZE) {
+            final List<String> chunk = tokens.subList(i, Math.min(i + DELETE_BATCH_SIZE, tokens.size()));
+            final Set<Long> hashes = DeviceTokenHash.ofAll(chunk);
+
+            // the join table first, installations are not loaded so nothing cascades
+            entityManager.createNativeQuery(DELETE_CATEGORIES_BY_TOKENS)
+                    .setParameter("variantID", variantID)
+                    .setParameter("deviceTokenHashes", hashes)
+                    .setParameter("deviceTokens", chunk)
+                    .executeUpdate();
+
+            deleted += entityManager.createNativeQuery(DELETE_INSTALLATIONS_BY_TOKENS)
+                    .setParameter("variantID", variantID)
+                    .setParameter("deviceTokenHashes", hashes)
+                    .setParameter("deviceTokens", chunk)
+                    .executeUpdate();
+        }
+
+        return deleted;
+    }
+
     @Override
     public Set<String> findAllDeviceTokenForVariantID(String variantID) {
         TypedQuery<String> query = createQuery(FIND_ALL_DEVICES_FOR_VARIANT_QUERY, String.class);
@@ -289,6 +374,7 @@ public class JPAInstallationDao extends JPABaseDao<Installation, String> impleme
     	return new StringBuilder("select installation from Installation installation " +
                 " join installation.variant abstractVariant" +
                 " where abstractVariant.variantID = :variantID" +
+                " and installation.deviceTokenHash = :deviceTokenHash" +
                 " and installation.deviceToken = :deviceToken");
     }
 
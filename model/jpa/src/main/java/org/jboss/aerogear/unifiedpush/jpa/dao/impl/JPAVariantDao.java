@@ -21,6 +21,7 @@ import org.jboss.aerogear.unifiedpush.dao.VariantDao;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -72,6 +73,13 @@ public class JPAVariantDao extends JPABaseDao<Variant, String> implements Varian
                 .setParameter("variantIDs", variantIDs).getResultList();
     }
 
+    @Override
+    public List<Variant> findVariantsWithMessagesSince(Date since) {
+        return createQuery("select v from PushApplication pa join pa.variants v where pa.pushApplicationID in "
+                + "(select pmi.pushApplicationId from FlatPushMessageInformation pmi where pmi.submitDate >= :since)")
+                .setParameter("since", since).getResultList();
+    }
+
     //Admin queries
     @Override
     public boolean existsVariantIDForAdmin(String variantID) {
@@ -32,6 +32,8 @@ import javax.persistence.PersistenceException;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
 import org.jboss.aerogear.unifiedpush.api.AdmVariant;
 import org.jboss.aerogear.unifiedpush.api.AndroidVariant;
 import org.jboss.aerogear.unifiedpush.api.Category;
@@ -231,6 +233,33 @@ public class InstallationDaoTest {
 		assertThat(list).hasSize(0);
 	}
 
+	@Test
+	public void bulkDeleteInstallationsByDeviceTokens() {
+		final Set<String> tokenz = new HashSet<>();
+		tokenz.add(DEVICE_TOKEN_1);
+		tokenz.add(DEVICE_TOKEN_2);
+		tokenz.add("foobar223");
+
+		int deleted = installationDao.deleteInstallationsForVariantByDeviceTokens(androidVariantID, tokenz);
+		assertThat(deleted).isEqualTo(2);
+
+		entityManager.clear();
+		assertThat(installationDao.findInstallationsForVariantByDeviceTokens(androidVariantID, tokenz)).isEmpty();
+		assertThat(installationDao.getNumberOfDevicesForVariantID(androidVariantID)).isEqualTo(4);
+		assertThat(entityManager.createNativeQuery("select installation_id from installation_category where installation_id IN ('1', '2')")
+				.getResultList()).isEmpty();
+	}
+
+	@Test
+	public void bulkDeleteInstallationsOfOtherVariant() {
+		final Set<String> tokenz = new HashSet<>();
+		tokenz.add(DEVICE_TOKEN_1);
+
+		assertThat(installationDao.deleteInstallationsForVariantByDeviceTokens(simplePushVariantID, tokenz)).isZero();
+		assertThat(installationDao.deleteInstallationsForVariantByDeviceTokens(androidVariantID, new HashSet<>())).isZero();
+		assertThat(installationDao.findInstallationForVariantByDeviceToken(androidVariantID, DEVICE_TOKEN_1)).isNotNull();
+	}
+
     @Test(expected= EntityNotFoundException.class)
 	public void deleteNonExistingInstallation() {
 		Installation installation = new Installation();
@@ -592,6 +621,35 @@ public class InstallationDaoTest {
 		assertThat(pageResult.getAggregate().getCount()).isEqualTo(6);
 	}
 
+	@Test
+	public void shouldSelectInstallationsPageWithConstantNumberOfStatements() {
+		final Statistics statistics = entityManager.unwrap(Session.class).getSessionFactory().getStatistics();
+		entityManager.clear();
+		statistics.clear();
+
+		// when
+		final PageResult<Installation, Count> pageResult = installationDao.findInstallationsByVariant(androidVariantID,
+				0, 10, null);
+		pageResult.getResultList().forEach(installation -> installation.getCategories().size());
+
+		// then: page, count and categories fetch - no select per installation
+		assertThat(pageResult.getResultList()).hasSize(6);
+		assertThat(pageResult.getResultList().get(0).getCategories()).extracting("name").containsOnly("soccer");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldFindInstallationWithCategories() {
+		entityManager.clear();
+
+		// when
+		final Installation installation = installationDao.find("1");
+		entityManager.clear();
+
+		// then: categories are available when detached
+		assertThat(installation.getCategories()).hasSize(1);
+	}
+
 	@Test
 	public void shouldSelectInstallationsByDeviceTokenSearch() {
 		// when
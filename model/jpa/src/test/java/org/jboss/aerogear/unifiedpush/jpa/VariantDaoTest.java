@@ -19,14 +19,19 @@ package org.jboss.aerogear.unifiedpush.jpa;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 
 import org.jboss.aerogear.unifiedpush.api.AndroidVariant;
+import org.jboss.aerogear.unifiedpush.api.FlatPushMessageInformation;
 import org.jboss.aerogear.unifiedpush.api.Installation;
+import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.Variant;
+import org.jboss.aerogear.unifiedpush.api.iOSVariant;
 import org.jboss.aerogear.unifiedpush.dao.VariantDao;
 import org.junit.Rule;
 import org.junit.Test;
@@ -75,6 +80,30 @@ public class VariantDaoTest {
         assertThat(variants).extracting("name").contains("Android Variant", "Something more Android");
     }
 
+    @Test
+    public void findVariantsWithMessagesSince() {
+        final iOSVariant variant = new iOSVariant();
+        variant.setName("iOS Variant");
+        variant.setCertificate("12".getBytes());
+        variant.setPassphrase("12");
+        entityManager.persist(variant);
+
+        final PushApplication pushApplication = new PushApplication();
+        pushApplication.setName("Active App");
+        pushApplication.setVariants(Collections.singletonList(variant));
+        entityManager.persist(pushApplication);
+
+        final FlatPushMessageInformation message = new FlatPushMessageInformation();
+        message.setPushApplicationId(pushApplication.getPushApplicationID());
+        message.setSubmitDate(new Date());
+        entityManager.persist(message);
+        entityManager.flush();
+
+        assertThat(variantDao.findVariantsWithMessagesSince(new Date(System.currentTimeMillis() - 60000)))
+                .extracting("variantID").containsOnly(variant.getVariantID());
+        assertThat(variantDao.findVariantsWithMessagesSince(new Date(System.currentTimeMillis() + 60000))).isEmpty();
+    }
+
     @Test
     public void updateVariant() {
         AndroidVariant queriedVariant = (AndroidVariant) variantDao.findByVariantID("1");
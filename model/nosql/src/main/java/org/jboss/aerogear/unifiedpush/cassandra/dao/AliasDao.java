@@ -1,7 +1,9 @@
 package org.jboss.aerogear.unifiedpush.cassandra.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.jboss.aerogear.unifiedpush.api.Alias;
@@ -13,17 +15,34 @@ import com.datastax.driver.core.Row;
 
 public interface AliasDao {
 	public static final String CACHE_NAME = "aliases";
+	public static final String USERS_CACHE_NAME = "aliases-by-user";
+	public static final String MISSING_CACHE_NAME = "aliases-missing";
 
 	List<User> create(Alias alias);
 
+	/**
+	 * Creates the users of an alias with the driver's async API, the users of
+	 * one alias are written with a single unlogged batch.
+	 *
+	 * An alias without id takes the id of the user already holding its email
+	 * (or else its other alias), whose previous aliases are replaced. Aliases
+	 * written or replaced are evicted from cache.
+	 */
+	CompletableFuture<List<User>> createAsync(Alias alias);
+
 	List<Alias> findAll(UUID pushApplicationId);
 
-	@CacheEvict(value = CACHE_NAME, allEntries = true)
+	@CacheEvict(value = { CACHE_NAME, USERS_CACHE_NAME }, allEntries = true)
 	void removeAll(UUID pushApplicationId);
 
 	@CacheEvict(value = CACHE_NAME)
 	void remove(UUID pushApplicationId, String alias);
 
+	/**
+	 * Aliases found are cached, aliases missing are remembered for a short
+	 * while in the {@link #MISSING_CACHE_NAME} cache (ignoring case), until
+	 * created by this dao.
+	 */
 	@Cacheable(value = CACHE_NAME, condition = "#pushApplicationId != null", unless = "#result == null")
 	Alias findByAlias(UUID pushApplicationId, String alias);
 
@@ -38,7 +57,42 @@ public interface AliasDao {
 	 */
 	void remove(UUID pushApplicationId, UUID userId);
 
+	/**
+	 * Removes all aliases of a user by partition key, with the driver's async
+	 * API. Nothing is read, only the user is evicted from cache. Callers evict
+	 * the {@link #CACHE_NAME} cache once done.
+	 */
+	CompletableFuture<Void> removeAsync(UUID pushApplicationId, UUID userId);
+
+	/**
+	 * Lazily scans the user ids of an application, one row per alias. Rows
+	 * are fetched page by page while the stream is consumed, in no particular
+	 * order.
+	 */
 	Stream<Row> findUserIds(UUID pushApplicationId);
 
+	/**
+	 * Same scan as {@link #findUserIds(UUID)}, resumed after the given user of
+	 * each month partition. Rows hold the user id and its month, rows of a user
+	 * are adjacent within its month.
+	 *
+	 * @param after
+	 *            last user scanned by month, months missing are scanned from
+	 *            their newest user
+	 */
+	Stream<Row> findUserIds(UUID pushApplicationId, Map<Byte, UUID> after);
+
+	/**
+	 * Reads through the {@link #USERS_CACHE_NAME} cache, keyed by
+	 * pushApplicationId and userId. Entries are evicted whenever the aliases
+	 * of a user are written or removed by this dao.
+	 */
 	Alias findOne(UUID pushApplicationId, UUID userId);
+
+	/**
+	 * Same query as {@link #findOne(UUID, UUID)}, executed with the driver's
+	 * async API. Completes with <code>null</code> for unknown users. Cached
+	 * aliases are returned, but the cache is not populated.
+	 */
+	CompletableFuture<Alias> findOneAsync(UUID pushApplicationId, UUID userId);
 }
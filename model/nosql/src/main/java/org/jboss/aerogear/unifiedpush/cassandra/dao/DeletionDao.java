@@ -0,0 +1,12 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao;
+
+import java.util.UUID;
+
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Deletion;
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * Checkpoints of push application deletions in progress.
+ */
+public interface DeletionDao extends CrudRepository<Deletion, UUID> {
+}
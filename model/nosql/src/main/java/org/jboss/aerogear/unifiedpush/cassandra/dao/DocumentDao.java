@@ -1,8 +1,10 @@
 package org.jboss.aerogear.unifiedpush.cassandra.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import org.jboss.aerogear.unifiedpush.api.Alias;
@@ -15,15 +17,51 @@ public interface DocumentDao<T, ID> {
 
 	void delete(UUID pushApplicationId);
 
+	/**
+	 * Deletes the global documents and the databases of an application.
+	 * Documents of its aliases are left to the caller, see
+	 * {@link #deleteAsync(UUID, Collection, UUID)}.
+	 */
+	void deleteDatabases(UUID pushApplicationId);
+
 	void delete(UUID pushApplicaitonId, Alias alias);
 
+	/**
+	 * Deletes the documents of a user from each of the given databases, by
+	 * partition key, with the driver's async API.
+	 */
+	CompletableFuture<Void> deleteAsync(UUID pushApplicationId, Collection<String> databases, UUID userId);
+
 	void delete(T doc);
 
+	/**
+	 * Lazily pages through the documents while the stream is consumed,
+	 * aerogear.config.documents.query.fetch.size documents at a time.
+	 */
 	Stream<DocumentContent> find(ID key, QueryOptions options);
 
+	/**
+	 * Counts the documents {@link #find(Object, QueryOptions)} would return,
+	 * reading only their snapshots.
+	 */
+	long count(ID key, QueryOptions options);
+
+	/**
+	 * Same query as {@link #find(Object, QueryOptions)}, executed with the
+	 * driver's async API.
+	 */
+	CompletableFuture<List<DocumentContent>> findAsync(ID key, QueryOptions options);
+
 	Optional<DocumentContent> findOne(ID key);
 
 	DocumentContent findOne(ID key, String documentId);
 
 	List<DocumentContent> findLatestForAliases(ID key, List<Alias> aliases, String documentId);
+
+	/**
+	 * Queries the latest document of each alias concurrently. The given key is
+	 * not modified, documents are listed in the order of their aliases.
+	 */
+	CompletableFuture<List<DocumentContent>> findLatestForAliasesAsync(ID key, List<Alias> aliases,
+			String documentId);
 }
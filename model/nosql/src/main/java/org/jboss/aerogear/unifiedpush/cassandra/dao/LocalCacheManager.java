@@ -0,0 +1,44 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+
+/**
+ * Caffeine cache manager holding two kinds of caches, regular caches and
+ * caches of missing keys (negative lookups).
+ *
+ * Missing keys are evicted only by the node creating them, other nodes rely
+ * on their short expiration.
+ */
+public class LocalCacheManager extends CaffeineCacheManager {
+	private static final String MISSING_SPEC = "maximumSize=100000,expireAfterWrite=30s,recordStats";
+
+	private final Set<String> missingCacheNames;
+
+	public LocalCacheManager(String spec, Collection<String> cacheNames, Collection<String> missingCacheNames) {
+		this.missingCacheNames = new HashSet<>(missingCacheNames);
+
+		List<String> names = new ArrayList<>(cacheNames);
+		names.addAll(missingCacheNames);
+
+		setCaffeineSpec(CaffeineSpec.parse(spec));
+		setCacheNames(names);
+	}
+
+	@Override
+	protected Cache<Object, Object> createNativeCaffeineCache(String name) {
+		if (missingCacheNames.contains(name))
+			return Caffeine.from(MISSING_SPEC).build();
+
+		return super.createNativeCaffeineCache(name);
+	}
+}
@@ -1,7 +1,10 @@
 package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
 import org.slf4j.Logger;
@@ -13,12 +16,22 @@ import org.springframework.data.cassandra.repository.query.CassandraEntityInform
 import org.springframework.data.cassandra.repository.support.SimpleCassandraRepository;
 
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 public abstract class CassandraBaseDao<T, ID extends Serializable> extends SimpleCassandraRepository<T, ID> {
 	private final Logger logger = LoggerFactory.getLogger(CassandraBaseDao.class);
 
 	@Autowired
 	protected CassandraOperations operations;
+	@Autowired
+	protected PreparedStatementRegistry statements;
 	protected String tableName;
 	protected final Class<T> domainClass;
 	private CassandraConfig config;
@@ -53,6 +66,82 @@ public abstract class CassandraBaseDao<T, ID extends Serializable> extends Simpl
 				"TypedIdCassandraRepository is @Deprecated, use CassandraRepository.save");
 	}
 
+	/**
+	 * Executes a query with the driver's async API and maps all its rows.
+	 *
+	 * Further pages are fetched asynchronously as well, rows are mapped on the driver thread which received them, so
+	 * the mapper must not block.
+	 */
+	protected <R> CompletableFuture<List<R>> queryAsync(Statement statement, Function<Row, R> mapper) {
+		// The CqlTemplate consistency level does not apply to statements executed on the session.
+		if (statement.getConsistencyLevel() == null)
+			statement.setConsistencyLevel(getConsistencyLevel());
+
+		CompletableFuture<List<R>> result = new CompletableFuture<>();
+		collect(getSession().executeAsync(statement), mapper, new ArrayList<>(), result);
+		return result;
+	}
+
+	/**
+	 * Executes a select with the driver's async API and maps all its rows to entities.
+	 */
+	protected CompletableFuture<List<T>> selectAsync(Statement statement) {
+		return queryAsync(statement, row -> operations.getConverter().read(domainClass, row));
+	}
+
+	/**
+	 * Executes a write with the driver's async API.
+	 */
+	protected CompletableFuture<Void> executeAsync(Statement statement) {
+		if (statement.getConsistencyLevel() == null)
+			statement.setConsistencyLevel(getConsistencyLevel());
+
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		Futures.addCallback(getSession().executeAsync(statement), new FutureCallback<ResultSet>() {
+			@Override
+			public void onSuccess(ResultSet rs) {
+				result.complete(null);
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				result.completeExceptionally(t);
+			}
+		}, MoreExecutors.directExecutor());
+
+		return result;
+	}
+
+	// Reads only the rows already fetched, iterating further would block on the next page.
+	private <R> void collect(ListenableFuture<ResultSet> page, Function<Row, R> mapper, List<R> rows,
+			CompletableFuture<List<R>> result) {
+		Futures.addCallback(page, new FutureCallback<ResultSet>() {
+			@Override
+			public void onSuccess(ResultSet rs) {
+				try {
+					for (int available = rs.getAvailableWithoutFetching(); available > 0; available--)
+						rows.add(mapper.apply(rs.one()));
+
+					if (rs.isFullyFetched())
+						result.complete(rows);
+					else
+						collect(rs.fetchMoreResults(), mapper, rows, result);
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				result.completeExceptionally(t);
+			}
+		}, MoreExecutors.directExecutor());
+	}
+
+	protected Session getSession() {
+		return ((CassandraAccessor) operations.getCqlOperations()).getSession();
+	}
+
 	protected ConsistencyLevel getConsistencyLevel() {
 		return ConsistencyLevel.valueOf(config.getConsistencyLevel());
 	}
@@ -74,6 +74,16 @@ public class DocumentKey implements Serializable {
 		this.userId = userId;
 	}
 
+	/**
+	 * Copy of this key for another user, used to query several partitions
+	 * without mutating a shared key.
+	 */
+	DocumentKey forUser(UUID userId) {
+		DocumentKey key = new DocumentKey(pushApplicationId, database, userId);
+		key.snapshot = snapshot;
+		return key;
+	}
+
 	public UUID getPushApplicationId() {
 		return pushApplicationId;
 	}
@@ -0,0 +1,83 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with power of two buckets, in microseconds.
+ *
+ * Bucket <code>i</code> counts latencies up to <code>2^i</code> microseconds,
+ * percentiles are reported as the upper bound of their bucket (at most twice
+ * the actual value).
+ */
+public final class LatencyHistogram {
+	private static final int BUCKETS = 32;
+
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long latency, TimeUnit unit) {
+		long micros = Math.max(0, unit.toMicros(latency));
+
+		buckets[bucket(micros)].increment();
+		count.increment();
+		totalMicros.add(micros);
+		maxMicros.accumulate(micros);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMeanMicros() {
+		long samples = count.sum();
+		return samples == 0 ? 0 : totalMicros.sum() / samples;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros.get();
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return upper bound, in microseconds, of the bucket holding the given
+	 *         percentile, 0 when nothing was recorded
+	 */
+	public long getPercentileMicros(double percentile) {
+		long samples = count.sum();
+		if (samples == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(samples * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets[i].sum();
+			if (seen >= rank)
+				return Math.min(1L << i, getMaxMicros());
+		}
+
+		return getMaxMicros();
+	}
+
+	private static int bucket(long micros) {
+		// Smallest i such that micros <= 2^i
+		int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%dus, p50=%dus, p99=%dus, max=%dus", getCount(), getMeanMicros(),
+				getPercentileMicros(50), getPercentileMicros(99), getMaxMicros());
+	}
+}
@@ -3,6 +3,8 @@ package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+
 import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.DatabaseDao;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Database;
@@ -16,12 +18,14 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Select;
 
 @Repository
 class NoSQLDatabaseDaoImpl extends CassandraBaseDao<Database, DatabaseKey> implements DatabaseDao {
 	private static final String MV_BY_DATABASE = "databases_by_database";
 
+	private static final String SELECT_BY_DATABASE = "databases_by_database.select";
+	private static final String SELECT_BY_APPLICATION = "databases.select";
+
 	public NoSQLDatabaseDaoImpl(@Autowired CassandraOperations operations, @Autowired CassandraConfig configuraion) {
 		super(Database.class, new CassandraRepositoryFactory(operations).getEntityInformation(Database.class),
 				operations, configuraion);
@@ -31,19 +35,23 @@ class NoSQLDatabaseDaoImpl extends CassandraBaseDao<Database, DatabaseKey> imple
 				"ConsistencyLevel Must be QUORUM");
 	}
 
-	public Database findOne(DatabaseQueryKey key) {
-		Select select = QueryBuilder.select().from(MV_BY_DATABASE);
-		select.where(QueryBuilder.eq("push_application_id", key.getPushApplicationId()));
-		select.where(QueryBuilder.eq("database", key.getDatabase()));
+	@PostConstruct
+	public void registerStatements() {
+		statements.register(SELECT_BY_DATABASE,
+				QueryBuilder.select().from(MV_BY_DATABASE)
+						.where(QueryBuilder.eq("push_application_id", QueryBuilder.bindMarker()))
+						.and(QueryBuilder.eq("database", QueryBuilder.bindMarker())));
+		statements.register(SELECT_BY_APPLICATION, QueryBuilder.select().from(super.tableName)
+				.where(QueryBuilder.eq("push_application_id", QueryBuilder.bindMarker())));
+	}
 
-		return operations.selectOne(select, domainClass);
+	public Database findOne(DatabaseQueryKey key) {
+		return operations.selectOne(
+				statements.bind(SELECT_BY_DATABASE, key.getPushApplicationId(), key.getDatabase()), domainClass);
 	}
 
 	public Stream<Database> find(UUID pushApplicationId) {
-		Select select = QueryBuilder.select().from(super.tableName);
-		select.where(QueryBuilder.eq("push_application_id", pushApplicationId));
-
-		return operations.stream(select, domainClass);
+		return operations.stream(statements.bind(SELECT_BY_APPLICATION, pushApplicationId), domainClass);
 	}
 
 	@Override
@@ -0,0 +1,26 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
+
+import java.util.UUID;
+
+import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DeletionDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Deletion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CassandraAccessor;
+import org.springframework.data.cassandra.repository.support.CassandraRepositoryFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+@Repository
+class NoSQLDeletionDaoImpl extends CassandraBaseDao<Deletion, UUID> implements DeletionDao {
+
+	public NoSQLDeletionDaoImpl(@Autowired CassandraOperations operations, @Autowired CassandraConfig configuraion) {
+		super(Deletion.class, new CassandraRepositoryFactory(operations).getEntityInformation(Deletion.class),
+				operations, configuraion);
+
+		Assert.isTrue(
+				((CassandraAccessor) operations.getCqlOperations()).getConsistencyLevel() == getConsistencyLevel(),
+				"ConsistencyLevel Must be QUORUM");
+	}
+}
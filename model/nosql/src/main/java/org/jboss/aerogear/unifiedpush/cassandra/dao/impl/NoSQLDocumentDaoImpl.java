@@ -1,13 +1,21 @@
 package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.aerogear.unifiedpush.api.Alias;
 import org.jboss.aerogear.unifiedpush.api.document.QueryOptions;
@@ -18,6 +26,9 @@ import org.jboss.aerogear.unifiedpush.cassandra.dao.DocumentDao;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Database;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DatabaseQueryKey;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
+import org.jboss.aerogear.unifiedpush.system.AsyncWindow;
+import org.jboss.aerogear.unifiedpush.system.ConfigurationEnvironment;
+import org.jboss.aerogear.unifiedpush.system.FanOut;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.cassandra.core.CassandraOperations;
 import org.springframework.data.cassandra.core.cql.CassandraAccessor;
@@ -26,6 +37,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Delete;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.querybuilder.Select;
@@ -38,10 +50,25 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 	private static final String MV_WITH_DOCUMENT_ID = "documents_with_document_id";
 	private static final int DEFAULT_LIMIT = 100;
 
+	// Prepared statements, optional restrictions are encoded in the name.
+	private static final String SELECT_LATEST = "documents.latest";
+	private static final String SELECT_SNAPSHOT = "documents.snapshot";
+	private static final String SELECT_SNAPSHOTS = "documents_with_document_id.snapshots.";
+	private static final String SELECT_DOCUMENTS = "documents.select.";
+	private static final String SELECT_KEYS = "documents.keys.";
+	private static final String DELETE_PARTITION = "documents.delete";
+
+	private static final int FROM = 1;
+	private static final int TO = 2;
+	private static final int LIMIT = 4;
+	private static final int IN = 8;
+
 	@Autowired
 	private DatabaseDao databaseDao;
 	@Autowired
 	private AliasDao aliasDao;
+	@Autowired
+	private ConfigurationEnvironment environment;
 
 	public NoSQLDocumentDaoImpl(@Autowired CassandraOperations operations, @Autowired CassandraConfig configuraion) {
 		super(DocumentContent.class,
@@ -53,6 +80,66 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 				"ConsistencyLevel Must be QUORUM");
 	}
 
+	@PostConstruct
+	public void registerStatements() {
+		statements.register(SELECT_LATEST, partition(QueryBuilder.select().from(super.tableName)).limit(1));
+		statements.register(SELECT_SNAPSHOT, partition(QueryBuilder.select().from(super.tableName))
+				.and(QueryBuilder.eq("snapshot", QueryBuilder.bindMarker())).limit(1));
+
+		for (int shape = 0; shape <= (FROM | TO); shape++) {
+			Select select = QueryBuilder.select("snapshot", "push_application_id", "database", "user_id", "document_id")
+					.from(MV_WITH_DOCUMENT_ID);
+			partition(select).and(QueryBuilder.eq("document_id", QueryBuilder.bindMarker()));
+			range(select, shape).limit(QueryBuilder.bindMarker());
+
+			statements.register(SELECT_SNAPSHOTS + shape, select);
+		}
+
+		for (int shape = 0; shape <= (FROM | TO | LIMIT | IN); shape++) {
+			// Snapshot is restricted either by IN or by range.
+			if ((shape & IN) != 0 && (shape & (FROM | TO)) != 0)
+				continue;
+
+			statements.register(SELECT_DOCUMENTS + shape,
+					documents(QueryBuilder.select().from(super.tableName), shape));
+			// Same restrictions, clustering key only (counts).
+			statements.register(SELECT_KEYS + shape,
+					documents(QueryBuilder.select("snapshot").from(super.tableName), shape));
+		}
+
+		Delete delete = QueryBuilder.delete().from(super.tableName);
+		delete.where(QueryBuilder.eq("push_application_id", QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq("database", QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq("user_id", QueryBuilder.bindMarker()));
+		statements.register(DELETE_PARTITION, delete);
+	}
+
+	private static Select.Where partition(Select select) {
+		return select.where(QueryBuilder.eq("push_application_id", QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq("database", QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq("user_id", QueryBuilder.bindMarker()));
+	}
+
+	private static Select documents(Select select, int shape) {
+		partition(select);
+		if ((shape & IN) != 0)
+			select.where(QueryBuilder.in("snapshot", QueryBuilder.bindMarker()));
+		range(select, shape);
+		if ((shape & LIMIT) != 0)
+			select.limit(QueryBuilder.bindMarker());
+
+		return select;
+	}
+
+	private static Select range(Select select, int shape) {
+		if ((shape & FROM) != 0)
+			select.where(QueryBuilder.gte("snapshot", QueryBuilder.bindMarker()));
+		if ((shape & TO) != 0)
+			select.where(QueryBuilder.lt("snapshot", QueryBuilder.bindMarker()));
+
+		return select;
+	}
+
 	@Override
 	public DocumentContent create(DocumentContent document) {
 		// If snapshot exists request is to update a specific version.
@@ -95,20 +182,49 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 	 * Return newest document according to DocumentKey.
 	 */
 	private DocumentContent findLatest(DocumentKey queryKey, String documentId) {
-		Select select = QueryBuilder.select().from(super.tableName);
-		select.where(QueryBuilder.eq("push_application_id", queryKey.getPushApplicationId()));
-		select.where(QueryBuilder.eq("database", queryKey.getDatabase()));
-		select.where(QueryBuilder.eq("user_id", queryKey.getUserId()));
+		UUID snapshot = null;
 
 		// Also search by document logical id.
 		if (documentId != null) {
-			UUID snapshot = findLatestById(queryKey, documentId);
+			snapshot = findLatestById(queryKey, documentId);
+		}
+
+		return operations.selectOne(selectLatest(queryKey, snapshot), this.domainClass);
+	}
 
-			if (snapshot != null)
-				select.where(QueryBuilder.eq("snapshot", snapshot));
+	/**
+	 * Same as {@link #findOne(DocumentKey, String)}, executed with the driver's
+	 * async API.
+	 */
+	private CompletableFuture<DocumentContent> findOneAsync(DocumentKey key, String documentId) {
+		if (key.getUserId() == null) {
+			throw new UnsupportedOperationException("Unable to find single document for unknown alias.");
 		}
 
-		return operations.selectOne(select, this.domainClass);
+		// Find document with specific version.
+		if (key.getSnapshot() != null && documentId == null)
+			return selectOneAsync(selectLatest(key, key.getSnapshot()));
+
+		if (documentId == null)
+			return selectOneAsync(selectLatest(key, null));
+
+		return queryAsync(selectSnapshots(key, new QueryOptions(documentId, 1)), row -> row.getUUID(0))
+				.thenCompose(snapshots -> selectOneAsync(
+						selectLatest(key, snapshots.isEmpty() ? null : snapshots.get(0))));
+	}
+
+	private CompletableFuture<DocumentContent> selectOneAsync(Statement select) {
+		return selectAsync(select).thenApply(docs -> docs.isEmpty() ? null : docs.get(0));
+	}
+
+	// Partitions are sorted by snapshot DESC, first row is the newest.
+	private Statement selectLatest(DocumentKey queryKey, UUID snapshot) {
+		if (snapshot != null)
+			return statements.bind(SELECT_SNAPSHOT, queryKey.getPushApplicationId(), queryKey.getDatabase(),
+					queryKey.getUserId(), snapshot);
+
+		return statements.bind(SELECT_LATEST, queryKey.getPushApplicationId(), queryKey.getDatabase(),
+				queryKey.getUserId());
 	}
 
 	// Select latest snapshot for a document id
@@ -118,50 +234,53 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 
 	// Select limited (default 100) amount of snapshots by document id
 	private Stream<Row> findById(DocumentKey queryKey, QueryOptions options) {
-		Select select = QueryBuilder.select("snapshot", "push_application_id", "database", "user_id", "document_id")
-				.from(MV_WITH_DOCUMENT_ID);
-		select.where(QueryBuilder.eq("push_application_id", queryKey.getPushApplicationId()));
-		select.where(QueryBuilder.eq("database", queryKey.getDatabase()));
-		select.where(QueryBuilder.eq("user_id", queryKey.getUserId()));
-		select.where(QueryBuilder.eq("document_id", options.getId()));
+		return StreamSupport.stream(
+				operations.getCqlOperations().queryForResultSet(selectSnapshots(queryKey, options)).spliterator(),
+				false);
+	}
 
-		if (options != null) {
-			// Query snapshot by equality
-			if (options.getFromDate() != null) {
-				final UUID min = UUIDs.startOf(options.getFromDate());
-				select.where(QueryBuilder.gte("snapshot", min));
-			}
-			if (options.getToDate() != null) {
-				final UUID max = UUIDs.endOf(options.getToDate());
-				select.where(QueryBuilder.lt("snapshot", max));
-			}
+	private Statement selectSnapshots(DocumentKey queryKey, QueryOptions options) {
+		List<Object> values = new ArrayList<>(Arrays.asList(queryKey.getPushApplicationId(), queryKey.getDatabase(),
+				queryKey.getUserId(), options.getId()));
 
-			if (options.getLimit() != null && options.getLimit() > 0)
-				select.limit(options.getLimit());
-			else
-				select.limit(DEFAULT_LIMIT);
-		}
+		// Query snapshot by equality
+		int shape = range(options, values);
+
+		if (options.getLimit() != null && options.getLimit() > 0)
+			values.add(options.getLimit());
+		else
+			values.add(DEFAULT_LIMIT);
 
-		return StreamSupport.stream(operations.getCqlOperations().queryForResultSet(select).spliterator(), false);
+		return statements.bind(SELECT_SNAPSHOTS + shape, values.toArray());
 	}
 
 	@Override
 	public List<DocumentContent> findLatestForAliases(DocumentKey key, List<Alias> aliases, String logicalId) {
-		List<DocumentContent> docs = new ArrayList<>();
-		if (aliases == null)
-			return docs;
+		try {
+			return findLatestForAliasesAsync(key, aliases, logicalId).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while querying latest documents", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+	}
 
-		aliases.forEach((alias) -> {
-			key.setUserId(alias.getId());
-			// Query global documents for each database
-			DocumentContent doc = findOne(key, logicalId);
+	@Override
+	public CompletableFuture<List<DocumentContent>> findLatestForAliasesAsync(DocumentKey key, List<Alias> aliases,
+			String logicalId) {
+		if (aliases == null)
+			return CompletableFuture.completedFuture(new ArrayList<>());
 
-			if (doc != null) {
-				docs.add(doc);
-			}
-		});
+		// Each alias queries its own partition, results keep the aliases order.
+		DocumentContent[] docs = new DocumentContent[aliases.size()];
+		List<Integer> indexes = IntStream.range(0, docs.length).boxed().collect(Collectors.toList());
 
-		return docs;
+		return FanOut.forEach(indexes, environment.getQueryConcurrency(),
+				i -> findOneAsync(key.forUser(aliases.get(i).getId()), logicalId).thenAccept(doc -> docs[i] = doc))
+				.thenApply(done -> Arrays.stream(docs).filter(Objects::nonNull).collect(Collectors.toList()));
 	}
 
 	private Stream<DocumentContent> find(DocumentKey queryKey) {
@@ -169,53 +288,109 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 	}
 
 	public Stream<DocumentContent> find(DocumentKey queryKey, QueryOptions options) {
-		Select select = QueryBuilder.select().from(super.tableName);
-		select.where(QueryBuilder.eq("push_application_id", queryKey.getPushApplicationId()));
-		select.where(QueryBuilder.eq("database", queryKey.getDatabase()));
-		select.where(QueryBuilder.eq("user_id", queryKey.getUserId()));
+		List<UUID> snapshots = null;
 
-		if (options != null) {
-			// Query by document id.
-			// Snapshot cannot be restricted by both an equality and an
-			// inequality relation
-			if (StringUtils.isNotEmpty(options.getId())) {
+		if (options != null && StringUtils.isNotEmpty(options.getId())) {
+			// Query snapshots for a given document id by equality
+			snapshots = findById(queryKey, options).map(row -> row.getUUID(0)).collect(Collectors.toList());
+		}
+
+		// Pages are mapped while the stream is consumed, keep them small.
+		Statement select = selectDocuments(SELECT_DOCUMENTS, queryKey, options, snapshots)
+				.setFetchSize(environment.getDocumentsFetchSize());
+
+		return operations.stream(select, domainClass);
+	}
+
+	/*
+	 * COUNT(*) is not used, a LIMIT restricts its single result row rather
+	 * than the rows counted. Snapshots are paged through instead, documents
+	 * content is never read.
+	 */
+	@Override
+	public long count(DocumentKey queryKey, QueryOptions options) {
+		List<UUID> snapshots = null;
+
+		if (options != null && StringUtils.isNotEmpty(options.getId())) {
+			snapshots = findById(queryKey, options).map(row -> row.getUUID(0)).collect(Collectors.toList());
+		}
+
+		return StreamSupport.stream(operations.getCqlOperations()
+				.queryForResultSet(selectDocuments(SELECT_KEYS, queryKey, options, snapshots)).spliterator(), false)
+				.count();
+	}
+
+	@Override
+	public CompletableFuture<List<DocumentContent>> findAsync(DocumentKey queryKey, QueryOptions options) {
+		if (options != null && StringUtils.isNotEmpty(options.getId())) {
+			return queryAsync(selectSnapshots(queryKey, options), row -> row.getUUID(0))
+					.thenCompose(snapshots -> selectAsync(
+							selectDocuments(SELECT_DOCUMENTS, queryKey, options, snapshots)));
+		}
+
+		return selectAsync(selectDocuments(SELECT_DOCUMENTS, queryKey, options, null));
+	}
 
-				// Query snapshots for a given document id by equality
-				List<UUID> snapshots = findById(queryKey, options).map(row -> row.getUUID(0))
-						.collect(Collectors.toList());
+	/*
+	 * Snapshot cannot be restricted by both an equality and an inequality
+	 * relation, when querying by document id the snapshots are selected first.
+	 */
+	private Statement selectDocuments(String prefix, DocumentKey queryKey, QueryOptions options,
+			List<UUID> snapshots) {
+		List<Object> values = new ArrayList<>(
+				Arrays.asList(queryKey.getPushApplicationId(), queryKey.getDatabase(), queryKey.getUserId()));
+		int shape = 0;
 
+		if (options != null) {
+			// Query by document id.
+			if (snapshots != null) {
 				// query snapshot by inequality
-				select.where(QueryBuilder.in("snapshot", snapshots));
+				shape |= IN;
+				values.add(snapshots);
 			} else {
 				// Query snapshot by equality
-				if (options.getFromDate() != null) {
-					final UUID min = UUIDs.startOf(options.getFromDate());
-					select.where(QueryBuilder.gte("snapshot", min));
-				}
-				if (options.getToDate() != null) {
-					final UUID max = UUIDs.endOf(options.getToDate());
-					select.where(QueryBuilder.lt("snapshot", max));
-				}
+				shape |= range(options, values);
 			}
 
-			if (options.getLimit() != null && options.getLimit() > 0)
-				select.limit(options.getLimit());
+			if (options.getLimit() != null && options.getLimit() > 0) {
+				shape |= LIMIT;
+				values.add(options.getLimit());
+			}
 		}
 
-		return operations.stream(select, domainClass);
+		return statements.bind(prefix + shape, values.toArray());
+	}
+
+	// Adds the snapshot range bounds to the values, returns the shape bits.
+	private int range(QueryOptions options, List<Object> values) {
+		int shape = 0;
+
+		if (options.getFromDate() != null) {
+			shape |= FROM;
+			values.add(UUIDs.startOf(options.getFromDate()));
+		}
+		if (options.getToDate() != null) {
+			shape |= TO;
+			values.add(UUIDs.endOf(options.getToDate()));
+		}
+
+		return shape;
 	}
 
 	@Override
 	public void delete(UUID pushApplicaitonId) {
-		// First query an delete all DB related documents.
 		databaseDao.find(pushApplicaitonId).forEach((db) -> {
+			delete(pushApplicaitonId, db.getDatabase());
+		});
 
-			// Query global documents for each database
-			find(new DocumentKey(db)).forEach((doc) -> {
-				delete(doc);
-			});
+		deleteDatabases(pushApplicaitonId);
+	}
 
-			delete(pushApplicaitonId, db.getDatabase());
+	@Override
+	public void deleteDatabases(UUID pushApplicaitonId) {
+		databaseDao.find(pushApplicaitonId).forEach((db) -> {
+			// Global documents of each database, by partition key.
+			deleteById(new DocumentKey(db));
 
 			// Delete database
 			databaseDao.delete(db);
@@ -230,28 +405,38 @@ public class NoSQLDocumentDaoImpl extends CassandraBaseDao<DocumentContent, Docu
 		});
 	}
 
+	@Override
+	public CompletableFuture<Void> deleteAsync(UUID pushApplicationId, Collection<String> databases, UUID userId) {
+		return CompletableFuture.allOf(databases.stream()
+				.map(database -> executeAsync(
+						statements.bind(DELETE_PARTITION, pushApplicationId, database, userId)))
+				.toArray(CompletableFuture[]::new));
+	}
+
 	/*
-	 * Delete application/alias documents from all 12 partitions (by month).
+	 * Delete application/alias documents from all 12 partitions (by month),
+	 * a window of partition deletes in flight.
 	 *
 	 * For a planet scale database, we can also create MV by day (365
 	 * partitions).
 	 */
 	private void delete(UUID pushApplicationId, String database) {
+		AsyncWindow window = new AsyncWindow(environment.getDeletionConcurrency());
+
 		aliasDao.findUserIds(pushApplicationId).forEach(row -> {
-			deleteById(new DocumentKey(pushApplicationId, database, row.getUUID(0)));
+			window.submit(() -> executeAsync(
+					statements.bind(DELETE_PARTITION, pushApplicationId, database, row.getUUID(0))));
 		});
+
+		window.drain();
 	}
 
 	@Override
 	public void deleteById(DocumentKey key) {
 		// Delete all documents by partition key
 		if (key.getSnapshot() == null) {
-			Delete delete = QueryBuilder.delete().from(super.tableName);
-			delete.where(QueryBuilder.eq("push_application_id", key.getPushApplicationId()));
-			delete.where(QueryBuilder.eq("database", key.getDatabase()));
-			delete.where(QueryBuilder.eq("user_id", key.getUserId()));
-
-			operations.getCqlOperations().execute(delete);
+			operations.getCqlOperations().execute(statements.bind(DELETE_PARTITION, key.getPushApplicationId(),
+					key.getDatabase(), key.getUserId()));
 		} else {
 			super.deleteById(key);
 		}
@@ -3,13 +3,19 @@ package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.commons.lang3.StringUtils;
 import org.jboss.aerogear.unifiedpush.api.Alias;
 import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
@@ -29,11 +35,11 @@ import org.springframework.data.cassandra.repository.support.CassandraRepository
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.Row;
-import com.datastax.driver.core.SimpleStatement;
-import com.datastax.driver.core.querybuilder.Delete;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
-import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.utils.UUIDs;
 
 @Repository
 class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasDao {
@@ -42,13 +48,25 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 	private static final String MV_BY_PUSH_APPLICATION = "users_by_application";
 	private static final String MV_BY_ALIAS_AND_APPLICATION = "users_by_alias_application";
 	private static final String MV_BY_ALIAS = "users_by_alias";
-	private static final List<Integer> months;
+	private static final List<Byte> months;
+	// Rows of users_by_application are a single UUID, two pages per month are
+	// held in memory while scanning.
+	private static final int SCAN_FETCH_SIZE = 1000;
+
+	private static final String SELECT_USERS = "users.select";
+	private static final String SELECT_BY_ALIAS = "users_by_alias.select";
+	private static final String SELECT_BY_ALIAS_AND_APPLICATION = "users_by_alias_application.select";
+	private static final String SELECT_BY_APPLICATION = "users_by_application.select";
+	private static final String SELECT_BY_APPLICATION_AFTER = "users_by_application.after";
+	private static final String DELETE_PARTITION = "users.delete";
+	private static final String DELETE_ALIAS = "users.delete_alias";
+	private static final String INSERT_USER = "users.insert";
 
 	@Autowired
 	private CacheManager cacheManager;
 
 	static {
-		months = Arrays.stream(Month.values()).map(month -> month.getValue()).collect(Collectors.toList());
+		months = Arrays.stream(Month.values()).map(month -> (byte) month.getValue()).collect(Collectors.toList());
 	}
 
 	public NoSQLUserDaoImpl(@Autowired CassandraOperations operations, @Autowired CassandraConfig configuraion) {
@@ -60,8 +78,151 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 				"ConsistencyLevel Must be QUORUM");
 	}
 
+	@PostConstruct
+	public void registerStatements() {
+		statements.register(SELECT_USERS, QueryBuilder.select().from(super.tableName)
+				.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq(UserKey.FIELD_USER_ID, QueryBuilder.bindMarker())));
+
+		statements.register(SELECT_BY_ALIAS,
+				QueryBuilder.select(UserKey.FIELD_PUSH_APPLICATION_ID, UserKey.FIELD_USER_ID, UserKey.FIELD_ALIAS)
+						.from(MV_BY_ALIAS).where(QueryBuilder.in(UserKey.FIELD_ALIAS, QueryBuilder.bindMarker())));
+		statements.register(SELECT_BY_ALIAS_AND_APPLICATION,
+				QueryBuilder.select(UserKey.FIELD_PUSH_APPLICATION_ID, UserKey.FIELD_USER_ID, UserKey.FIELD_ALIAS)
+						.from(MV_BY_ALIAS_AND_APPLICATION)
+						.where(QueryBuilder.in(UserKey.FIELD_ALIAS, QueryBuilder.bindMarker()))
+						.and(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker())));
+
+		statements.register(SELECT_BY_APPLICATION,
+				QueryBuilder.select(UserKey.FIELD_USER_ID, "month").from(MV_BY_PUSH_APPLICATION)
+						.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker()))
+						.and(QueryBuilder.eq("month", QueryBuilder.bindMarker())));
+		statements.register(SELECT_BY_APPLICATION_AFTER,
+				QueryBuilder.select(UserKey.FIELD_USER_ID, "month").from(MV_BY_PUSH_APPLICATION)
+						.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker()))
+						.and(QueryBuilder.eq("month", QueryBuilder.bindMarker()))
+						// Users are clustered newest first.
+						.and(QueryBuilder.lt(UserKey.FIELD_USER_ID, QueryBuilder.bindMarker())));
+
+		statements.register(DELETE_PARTITION, QueryBuilder.delete().from(super.tableName)
+				.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq(UserKey.FIELD_USER_ID, QueryBuilder.bindMarker())));
+		statements.register(DELETE_ALIAS, QueryBuilder.delete().from(super.tableName)
+				.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq(UserKey.FIELD_USER_ID, QueryBuilder.bindMarker()))
+				.and(QueryBuilder.eq(UserKey.FIELD_ALIAS, QueryBuilder.bindMarker())));
+
+		statements.register(INSERT_USER,
+				QueryBuilder.insertInto(super.tableName)
+						.value(UserKey.FIELD_PUSH_APPLICATION_ID, QueryBuilder.bindMarker())
+						.value(UserKey.FIELD_USER_ID, QueryBuilder.bindMarker())
+						.value(UserKey.FIELD_ALIAS, QueryBuilder.bindMarker())
+						.value("type", QueryBuilder.bindMarker()).value("month", QueryBuilder.bindMarker())
+						.value("day", QueryBuilder.bindMarker()));
+	}
+
 	@Override
 	public List<User> create(Alias alias) {
+		List<User> users = toUsers(alias);
+
+		users.stream().forEach(user -> {
+			super.save(user);
+			evictMissing(alias.getPushApplicationId(), user.getAlias());
+		});
+
+		evictUser(alias.getPushApplicationId(), alias.getId());
+		return users;
+	}
+
+	@Override
+	public CompletableFuture<List<User>> createAsync(Alias alias) {
+		if (alias.getId() != null)
+			return writeAsync(alias, Collections.emptyList());
+
+		UUID pushApplicationId = alias.getPushApplicationId();
+
+		// Both aliases are looked up at once, a user holding the email wins.
+		CompletableFuture<List<UserKey>> byEmail = findKeysAsync(alias.getEmail(), pushApplicationId);
+		CompletableFuture<List<UserKey>> byOther = findKeysAsync(alias.getOther(), pushApplicationId);
+
+		return byEmail.thenCombine(byOther, (emailKeys, otherKeys) -> {
+			List<UserKey> keys = new ArrayList<>(emailKeys);
+			keys.addAll(otherKeys);
+			return keys;
+		}).thenCompose(keys -> {
+			if (keys.isEmpty()) {
+				alias.setId(UUIDs.timeBased());
+				return writeAsync(alias, Collections.emptyList());
+			}
+
+			// Keep the existing user id, replace all its previous aliases.
+			UUID userId = keys.get(0).getId();
+			alias.setId(userId);
+
+			return selectAsync(selectUsers(pushApplicationId, userId)).thenCompose(previous -> {
+				List<UserKey> stale = previous.stream().map(User::getKey).collect(Collectors.toList());
+				keys.stream().filter(key -> !key.getId().equals(userId)).forEach(stale::add);
+
+				return writeAsync(alias, stale);
+			});
+		});
+	}
+
+	/*
+	 * Writes the users of an alias with a single unlogged batch (one
+	 * partition), previous aliases of other users are deleted on their own.
+	 */
+	private CompletableFuture<List<User>> writeAsync(Alias alias, List<UserKey> stale) {
+		List<User> users = toUsers(alias);
+		Set<String> names = users.stream().map(User::getAlias).collect(Collectors.toSet());
+
+		BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+		List<CompletableFuture<Void>> writes = new ArrayList<>();
+
+		stale.forEach(key -> {
+			if (!key.getId().equals(alias.getId())) {
+				writes.add(executeAsync(statements.bind(DELETE_ALIAS, key.getPushApplicationId(), key.getId(),
+						key.getAlias())));
+			} else if (!names.contains(key.getAlias())) {
+				// A delete and an insert of the same row would share their
+				// timestamp, rewritten rows are not deleted.
+				batch.add(statements.bind(DELETE_ALIAS, key.getPushApplicationId(), key.getId(), key.getAlias()));
+			}
+		});
+
+		users.forEach(user -> {
+			batch.add(statements.bind(INSERT_USER, user.getKey().getPushApplicationId(), user.getId(),
+					user.getAlias(), user.getType(), user.getMonth(), user.getDay()));
+		});
+
+		if (batch.size() > 0)
+			writes.add(executeAsync(batch));
+
+		return CompletableFuture.allOf(writes.toArray(new CompletableFuture[writes.size()])).thenApply(done -> {
+			// findByAlias results of both previous and new aliases are stale.
+			stale.forEach(key -> {
+				evict(key.getPushApplicationId(), key.getAlias());
+				evictUser(key.getPushApplicationId(), key.getId());
+			});
+			names.forEach(name -> {
+				evict(alias.getPushApplicationId(), name);
+				evictMissing(alias.getPushApplicationId(), name);
+			});
+			evictUser(alias.getPushApplicationId(), alias.getId());
+
+			return users;
+		});
+	}
+
+	private CompletableFuture<List<UserKey>> findKeysAsync(String alias, UUID pushApplicationId) {
+		if (StringUtils.isEmpty(alias))
+			return CompletableFuture.completedFuture(Collections.emptyList());
+
+		return queryAsync(statements.bind(SELECT_BY_ALIAS_AND_APPLICATION, optionalAliases(alias, null),
+				pushApplicationId), this::getKey);
+	}
+
+	private List<User> toUsers(Alias alias) {
 		List<User> users = new ArrayList<User>();
 
 		if (StringUtils.isNotEmpty(alias.getEmail())) {
@@ -78,10 +239,6 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 			users.add(User.copy(alias, alias.getOther(), User.AliasType.OTHER.ordinal()));
 		}
 
-		users.stream().forEach(user -> {
-			super.save(user);
-		});
-
 		if (users == null || users.size() == 0) {
 			logger.warn("Attempt to store an alias without a valid AliasType. alias:{}", alias.toString());
 		}
@@ -119,19 +276,52 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 	public Alias findByAlias(UUID pushApplicationId, String alias) {
 		// Always find latest alias assuming users_by_alias is sorted DESC.
 		// pushApplicationId should be null only by associate/verify API.
+		Cache missing = cacheManager.getCache(AliasDao.MISSING_CACHE_NAME);
+		if (isMissing(missing, pushApplicationId, alias))
+			return null;
+
 		Optional<Row> row = findUserIds(alias, pushApplicationId).findFirst();
 		if (row.isPresent()) {
 			UserKey ukey = getKey(row.get());
 			return findOne(ukey.getPushApplicationId(), ukey.getId());
 		}
 
+		// Neither the alias nor its lower case name exist.
+		missing.put(new SimpleKey(pushApplicationId, alias), Boolean.TRUE);
+		if (StringUtils.isNotEmpty(alias) && isLowerCaseRequired(alias))
+			missing.put(new SimpleKey(pushApplicationId, alias.toLowerCase()), Boolean.TRUE);
 		return null;
 	}
 
 	public Alias findOne(UUID pushApplicationId, UUID userId) {
+		Cache cache = cacheManager.getCache(AliasDao.USERS_CACHE_NAME);
+		SimpleKey key = new SimpleKey(pushApplicationId, userId);
+
+		Alias alias = cache.get(key, Alias.class);
+		if (alias != null)
+			return alias;
+
 		// Get all possible aliases for a userId
-		List<User> users = getUsers(pushApplicationId, userId);
+		alias = toAlias(pushApplicationId, userId, getUsers(pushApplicationId, userId));
+		if (alias != null)
+			cache.put(key, alias);
 
+		return alias;
+	}
+
+	@Override
+	public CompletableFuture<Alias> findOneAsync(UUID pushApplicationId, UUID userId) {
+		// Scans (e.g. deletions) would flood the cache, it is only read.
+		Alias alias = cacheManager.getCache(AliasDao.USERS_CACHE_NAME).get(new SimpleKey(pushApplicationId, userId),
+				Alias.class);
+		if (alias != null)
+			return CompletableFuture.completedFuture(alias);
+
+		return selectAsync(selectUsers(pushApplicationId, userId))
+				.thenApply(users -> toAlias(pushApplicationId, userId, users));
+	}
+
+	private Alias toAlias(UUID pushApplicationId, UUID userId, List<User> users) {
 		if (users == null || users.size() == 0) {
 			return null;
 		}
@@ -151,12 +341,12 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 	}
 
 	private List<User> getUsers(UUID pushApplicationId, UUID userId) {
-		Select select = QueryBuilder.select().from(super.tableName);
-		select.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, pushApplicationId));
-		select.where(QueryBuilder.eq(UserKey.FIELD_USER_ID, userId));
-
 		// Get all possible aliases for a userId
-		return operations.select(select, super.domainClass);
+		return operations.select(selectUsers(pushApplicationId, userId), super.domainClass);
+	}
+
+	private Statement selectUsers(UUID pushApplicationId, UUID userId) {
+		return statements.bind(SELECT_USERS, pushApplicationId, userId);
 	}
 
 	/*
@@ -175,35 +365,29 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 	private Stream<Row> findUserIds(String alias, UUID pushApplicationId) {
 		List<String> aliases = optionalAliases(alias, null);
 
-		StringBuffer cql = new StringBuffer("SELECT ") //
-				.append(UserKey.FIELD_PUSH_APPLICATION_ID).append(",") //
-				.append(UserKey.FIELD_USER_ID).append(",") //
-				.append(UserKey.FIELD_ALIAS) //
-				.append(" FROM ").append(pushApplicationId == null ? MV_BY_ALIAS : MV_BY_ALIAS_AND_APPLICATION) //
-				.append(" WHERE alias IN ('").append(StringUtils.join(aliases, "','")).append("')");
-		if (pushApplicationId != null) {
-			cql.append(" AND ").append(UserKey.FIELD_PUSH_APPLICATION_ID).append("=").append(pushApplicationId);
-		}
+		Statement statement = pushApplicationId == null ? statements.bind(SELECT_BY_ALIAS, aliases)
+				: statements.bind(SELECT_BY_ALIAS_AND_APPLICATION, aliases, pushApplicationId);
 
-		return StreamSupport.stream(
-				operations.getCqlOperations().queryForResultSet(new SimpleStatement(cql.toString())).spliterator(),
-				false);
+		return StreamSupport.stream(operations.getCqlOperations().queryForResultSet(statement).spliterator(), false);
 	}
 
 	/*
-	 * Select user_id from all 12 partitions (by month). For a planet scale
-	 * sizing, we can also create MV by day (365 partitions).
+	 * Select user_id from all 12 partitions (by month). Each partition is
+	 * queried and paged on its own, rather than with a single month IN (...)
+	 * query the coordinator has to merge. For a planet scale sizing, we can
+	 * also create MV by day (365 partitions).
 	 */
 	public Stream<Row> findUserIds(UUID pushApplicationId) {
-		StringBuffer cql = new StringBuffer("SELECT ") //
-				.append(UserKey.FIELD_USER_ID) //
-				.append(" FROM ").append(MV_BY_PUSH_APPLICATION) //
-				.append(" WHERE ").append(UserKey.FIELD_PUSH_APPLICATION_ID).append("=").append(pushApplicationId) //
-				.append(" AND month IN (").append(StringUtils.join(months, ",")).append(")");
-
-		return StreamSupport.stream(
-				operations.getCqlOperations().queryForResultSet(new SimpleStatement(cql.toString())).spliterator(),
-				false);
+		return findUserIds(pushApplicationId, Collections.emptyMap());
+	}
+
+	@Override
+	public Stream<Row> findUserIds(UUID pushApplicationId, Map<Byte, UUID> after) {
+		List<Statement> partitions = months.stream().map(month -> after.containsKey(month)
+				? statements.bind(SELECT_BY_APPLICATION_AFTER, pushApplicationId, month, after.get(month))
+				: statements.bind(SELECT_BY_APPLICATION, pushApplicationId, month)).collect(Collectors.toList());
+
+		return PartitionScanner.stream(getSession(), partitions, SCAN_FETCH_SIZE);
 	}
 
 	@Override
@@ -229,19 +413,25 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 		}
 	}
 
+	@Override
+	public CompletableFuture<Void> removeAsync(UUID pushApplicationId, UUID userId) {
+		return executeAsync(statements.bind(DELETE_PARTITION, pushApplicationId, userId))
+				.thenRun(() -> evictUser(pushApplicationId, userId));
+	}
+
 	@Override
 	public void deleteById(UserKey key) {
 		// Delete all aliases by partition key
 		// Future spring-cassandra versions might handle null clustering key.
 		if (key.getAlias() == null) {
-			Delete delete = QueryBuilder.delete().from(super.tableName);
-			delete.where(QueryBuilder.eq(UserKey.FIELD_PUSH_APPLICATION_ID, key.getPushApplicationId()));
-			delete.where(QueryBuilder.eq(UserKey.FIELD_USER_ID, key.getId()));
-			operations.getCqlOperations().execute(delete);
+			operations.getCqlOperations()
+					.execute(statements.bind(DELETE_PARTITION, key.getPushApplicationId(), key.getId()));
 		} else {
 			super.deleteById(key);
 			evict(key.getPushApplicationId(), key.getAlias());
 		}
+
+		evictUser(key.getPushApplicationId(), key.getId());
 	}
 
 	/*
@@ -278,4 +468,29 @@ class NoSQLUserDaoImpl extends CassandraBaseDao<User, UserKey> implements AliasD
 		Cache cache = cacheManager.getCache(AliasDao.CACHE_NAME);
 		cache.evict(new SimpleKey(pushApplicationId, alias));
 	}
+
+	/*
+	 * Missing aliases are cached by pushApplicationId (or null) and the exact
+	 * alias name. A lookup queries the name and its lower case name, so a mixed
+	 * case name is missing only while both of them are.
+	 */
+	private boolean isMissing(Cache missing, UUID pushApplicationId, String alias) {
+		if (missing.get(new SimpleKey(pushApplicationId, alias)) == null)
+			return false;
+
+		return StringUtils.isEmpty(alias) || !isLowerCaseRequired(alias)
+				|| missing.get(new SimpleKey(pushApplicationId, alias.toLowerCase())) != null;
+	}
+
+	private void evictMissing(UUID pushApplicationId, String alias) {
+		Cache cache = cacheManager.getCache(AliasDao.MISSING_CACHE_NAME);
+		cache.evict(new SimpleKey(pushApplicationId, alias));
+		cache.evict(new SimpleKey(null, alias));
+	}
+
+	// Users are cached by pushApplicationId and userId.
+	private void evictUser(UUID pushApplicationId, UUID userId) {
+		Cache cache = cacheManager.getCache(AliasDao.USERS_CACHE_NAME);
+		cache.evict(new SimpleKey(pushApplicationId, userId));
+	}
 }
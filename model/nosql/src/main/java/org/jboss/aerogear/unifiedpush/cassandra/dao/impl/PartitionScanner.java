@@ -0,0 +1,130 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Lazily merges the rows of several single partition queries.
+ *
+ * All queries are started at once, each partition is then paged on its own:
+ * the next page of a partition is requested in the background once half of
+ * its current page is consumed. Rows are taken from whichever partition has
+ * some at hand, so at most two pages per partition are held in memory,
+ * whatever the size of the partitions.
+ */
+final class PartitionScanner implements Iterator<Row> {
+	private final List<Partition> partitions;
+	private int current;
+	private Row next;
+
+	private PartitionScanner(Session session, List<? extends Statement> statements, int fetchSize) {
+		this.partitions = new ArrayList<>(statements.size());
+
+		statements.forEach(statement -> {
+			statement.setFetchSize(fetchSize);
+			partitions.add(new Partition(session.executeAsync(statement), fetchSize / 2));
+		});
+	}
+
+	/**
+	 * @return rows of all given statements, in no particular order across
+	 *         partitions.
+	 */
+	static Stream<Row> stream(Session session, List<? extends Statement> statements, int fetchSize) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+				new PartitionScanner(session, statements, fetchSize), Spliterator.NONNULL), false);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null)
+			next = advance();
+
+		return next != null;
+	}
+
+	@Override
+	public Row next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		Row row = next;
+		next = null;
+		return row;
+	}
+
+	private Row advance() {
+		while (!partitions.isEmpty()) {
+			// Stick to the last partition read as long as it has rows at hand.
+			for (int i = 0; i < partitions.size(); i++) {
+				int index = (current + i) % partitions.size();
+				Row row = partitions.get(index).poll();
+
+				if (row != null) {
+					current = index;
+					return row;
+				}
+			}
+
+			// Nothing at hand, wait for the current partition.
+			current = current % partitions.size();
+			Row row = partitions.get(current).take();
+			if (row != null)
+				return row;
+
+			partitions.remove(current);
+		}
+
+		return null;
+	}
+
+	private static final class Partition {
+		private final ResultSetFuture first;
+		private final int prefetchThreshold;
+		private ResultSet rs;
+
+		private Partition(ResultSetFuture first, int prefetchThreshold) {
+			this.first = first;
+			this.prefetchThreshold = prefetchThreshold;
+		}
+
+		// Next row if already fetched, null otherwise.
+		private Row poll() {
+			if (rs == null) {
+				if (!first.isDone())
+					return null;
+
+				rs = first.getUninterruptibly();
+			}
+
+			if (rs.getAvailableWithoutFetching() == 0)
+				return null;
+
+			return take();
+		}
+
+		// Next row, blocks until fetched. Null once the partition is exhausted.
+		private Row take() {
+			if (rs == null)
+				rs = first.getUninterruptibly();
+
+			// Returns the pending fetch if one is in progress.
+			if (rs.getAvailableWithoutFetching() <= prefetchThreshold && !rs.isFullyFetched())
+				rs.fetchMoreResults();
+
+			return rs.one();
+		}
+	}
+}
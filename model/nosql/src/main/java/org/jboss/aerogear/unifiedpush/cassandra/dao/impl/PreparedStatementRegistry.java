@@ -0,0 +1,166 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CassandraAccessor;
+import org.springframework.stereotype.Component;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Prepared statements of the DAOs, by name.
+ *
+ * DAOs register their query shapes (with bind markers) when they are created,
+ * all shapes are prepared once the context is refreshed. A shape which could
+ * not be prepared at startup is prepared on first use. Bound statements carry
+ * their partition key, so the driver's default (token aware) load balancing
+ * policy routes them to a replica.
+ *
+ * Execution latency of each registered statement is recorded from the
+ * cluster's latency tracker, whichever API (sync, async, paging) executes it,
+ * and published under <code>/sys/info/statements</code>.
+ */
+@Component
+public class PreparedStatementRegistry implements LatencyTracker, ApplicationListener<ContextRefreshedEvent> {
+	private final Logger logger = LoggerFactory.getLogger(PreparedStatementRegistry.class);
+
+	private final Map<String, Shape> byName = new ConcurrentHashMap<>();
+	private final Map<String, Shape> byQuery = new ConcurrentHashMap<>();
+
+	@Autowired
+	private CassandraOperations operations;
+	@Autowired
+	private CassandraConfig config;
+
+	private Cluster cluster;
+
+	@PostConstruct
+	public void registerLatencyTracker() {
+		cluster = getSession().getCluster();
+		cluster.register(this);
+	}
+
+	@PreDestroy
+	public void unregisterLatencyTracker() {
+		if (cluster != null && !cluster.isClosed())
+			cluster.unregister(this);
+	}
+
+	/**
+	 * Registers a query shape, values are bound in the order of its markers.
+	 */
+	public void register(String name, RegularStatement statement) {
+		Shape shape = new Shape(name, statement.getQueryString());
+
+		byName.put(name, shape);
+		byQuery.put(shape.query, shape);
+	}
+
+	public BoundStatement bind(String name, Object... values) {
+		Shape shape = byName.get(name);
+		if (shape == null)
+			throw new IllegalArgumentException("Unknown statement " + name);
+
+		return shape.prepare().bind(values);
+	}
+
+	/**
+	 * @return execution latency by statement name
+	 */
+	public Map<String, LatencyHistogram> getHistograms() {
+		Map<String, LatencyHistogram> histograms = new TreeMap<>();
+		byName.values().forEach(shape -> histograms.put(shape.name, shape.histogram));
+
+		return Collections.unmodifiableMap(histograms);
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		byName.values().forEach(shape -> {
+			try {
+				shape.prepare();
+			} catch (RuntimeException e) {
+				logger.warn("Unable to prepare statement {} ({}), will retry on first use", shape.name,
+						e.getMessage());
+			}
+		});
+
+		logger.debug("Prepared {} statements", byName.size());
+	}
+
+	@Override
+	public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+		if (statement instanceof BoundStatement) {
+			Shape shape = byQuery.get(((BoundStatement) statement).preparedStatement().getQueryString());
+
+			if (shape != null)
+				shape.histogram.record(newLatencyNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public void onRegister(Cluster cluster) {
+		// Nothing to do
+	}
+
+	@Override
+	public void onUnregister(Cluster cluster) {
+		// Nothing to do
+	}
+
+	private Session getSession() {
+		return ((CassandraAccessor) operations.getCqlOperations()).getSession();
+	}
+
+	private final class Shape {
+		private final String name;
+		private final String query;
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		private volatile PreparedStatement prepared;
+
+		private Shape(String name, String query) {
+			this.name = name;
+			this.query = query;
+		}
+
+		private PreparedStatement prepare() {
+			PreparedStatement statement = prepared;
+			if (statement == null) {
+				synchronized (this) {
+					statement = prepared;
+					if (statement == null) {
+						statement = getSession().prepare(query);
+						// The CqlTemplate consistency level does not apply to
+						// statements bound here.
+						statement.setConsistencyLevel(ConsistencyLevel.valueOf(config.getConsistencyLevel()));
+						prepared = statement;
+					}
+				}
+			}
+
+			return statement;
+		}
+	}
+}
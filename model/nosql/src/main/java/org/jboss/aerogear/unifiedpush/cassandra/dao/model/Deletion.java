@@ -0,0 +1,125 @@
+package org.jboss.aerogear.unifiedpush.cassandra.dao.model;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+/**
+ * Progress of a push application deletion, saved at each checkpoint so an
+ * interrupted deletion can be resumed.
+ *
+ * Aliases are scanned by month partition (users_by_application), newest
+ * first. The checkpoint of a month is the last user whose aliases and
+ * documents were deleted.
+ */
+@Table(value = "deletions")
+public class Deletion {
+	@NotNull
+	@PrimaryKey("push_application_id")
+	private UUID pushApplicationId;
+
+	@Column("application_name")
+	private String applicationName;
+
+	@Column
+	private String account;
+
+	@Column
+	private boolean destructive;
+
+	@Column
+	private Date started;
+
+	@Column
+	private Date updated;
+
+	@Column("deleted_users")
+	private long deletedUsers;
+
+	@Column
+	private Map<Byte, UUID> checkpoints = new HashMap<>();
+
+	public Deletion() {
+	}
+
+	public Deletion(UUID pushApplicationId, String applicationName, String account, boolean destructive) {
+		super();
+		this.pushApplicationId = pushApplicationId;
+		this.applicationName = applicationName;
+		this.account = account;
+		this.destructive = destructive;
+		this.started = new Date();
+		this.updated = started;
+	}
+
+	public UUID getPushApplicationId() {
+		return pushApplicationId;
+	}
+
+	public void setPushApplicationId(UUID pushApplicationId) {
+		this.pushApplicationId = pushApplicationId;
+	}
+
+	public String getApplicationName() {
+		return applicationName;
+	}
+
+	public void setApplicationName(String applicationName) {
+		this.applicationName = applicationName;
+	}
+
+	public String getAccount() {
+		return account;
+	}
+
+	public void setAccount(String account) {
+		this.account = account;
+	}
+
+	public boolean isDestructive() {
+		return destructive;
+	}
+
+	public void setDestructive(boolean destructive) {
+		this.destructive = destructive;
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public void setStarted(Date started) {
+		this.started = started;
+	}
+
+	public Date getUpdated() {
+		return updated;
+	}
+
+	public void setUpdated(Date updated) {
+		this.updated = updated;
+	}
+
+	public long getDeletedUsers() {
+		return deletedUsers;
+	}
+
+	public void setDeletedUsers(long deletedUsers) {
+		this.deletedUsers = deletedUsers;
+	}
+
+	public Map<Byte, UUID> getCheckpoints() {
+		return checkpoints;
+	}
+
+	public void setCheckpoints(Map<Byte, UUID> checkpoints) {
+		this.checkpoints = checkpoints == null ? new HashMap<>() : checkpoints;
+	}
+}
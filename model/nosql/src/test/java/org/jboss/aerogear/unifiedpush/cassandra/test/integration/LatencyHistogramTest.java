@@ -0,0 +1,40 @@
+package org.jboss.aerogear.unifiedpush.cassandra.test.integration;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.LatencyHistogram;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		// 90 fast (~100us) and 10 slow (~10ms) requests
+		for (int i = 0; i < 90; i++)
+			histogram.record(100, TimeUnit.MICROSECONDS);
+		for (int i = 0; i < 10; i++)
+			histogram.record(10, TimeUnit.MILLISECONDS);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(10000, histogram.getMaxMicros());
+		assertEquals((90 * 100 + 10 * 10000) / 100, histogram.getMeanMicros());
+
+		// Reported as the upper bound of their power of two bucket
+		assertEquals(128, histogram.getPercentileMicros(50));
+		assertEquals(128, histogram.getPercentileMicros(90));
+		assertEquals(10000, histogram.getPercentileMicros(99));
+	}
+
+	@Test
+	public void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getMeanMicros());
+		assertEquals(0, histogram.getPercentileMicros(99));
+	}
+}
@@ -0,0 +1,123 @@
+package org.jboss.aerogear.unifiedpush.cassandra.test.integration.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.cassandraunit.CQLDataLoader;
+import org.cassandraunit.dataset.cql.ClassPathCQLDataSet;
+import org.cassandraunit.utils.EmbeddedCassandraServerHelper;
+import org.jboss.aerogear.unifiedpush.api.Alias;
+import org.jboss.aerogear.unifiedpush.api.document.DocumentMetadata;
+import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.AliasDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DocumentDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.DocumentKey;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * Latency of DocumentDao.findLatestForAliases against an embedded Cassandra:
+ * one alias after another, as done before the concurrent implementation,
+ * compared with the concurrent implementation.
+ *
+ * Not a test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...FindLatestForAliasesBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FindLatestForAliasesBenchmark {
+	private static final String DATABASE = "BENCHMARK";
+	private static final String DOCUMENT_ID = "ID1";
+
+	@Param({ "10", "100", "500" })
+	public int aliasCount;
+
+	private AnnotationConfigApplicationContext context;
+	private DocumentDao<DocumentContent, DocumentKey> documentDao;
+	private UUID pushApplicationId;
+	private List<Alias> aliases;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() throws Exception {
+		EmbeddedCassandraServerHelper.startEmbeddedCassandra(60000L);
+		new CQLDataLoader(EmbeddedCassandraServerHelper.getSession())
+				.load(new ClassPathCQLDataSet("cassandra-test-cql-dataload.cql", CassandraConfig.PROP_KEYSPACE_DEFV));
+
+		context = new AnnotationConfigApplicationContext(CassandraConfig.class);
+		documentDao = context.getBean(DocumentDao.class);
+		AliasDao aliasDao = context.getBean(AliasDao.class);
+
+		pushApplicationId = UUID.randomUUID();
+		aliases = new ArrayList<>();
+		for (int i = 0; i < aliasCount; i++) {
+			Alias alias = new Alias(pushApplicationId, UUIDs.timeBased(), "benchmark" + i + "@aerobase.org");
+			aliasDao.create(alias);
+			aliases.add(alias);
+
+			// A few snapshots per alias, the latest one is queried.
+			for (int snapshot = 0; snapshot < 3; snapshot++) {
+				documentDao.create(new DocumentContent(
+						new DocumentKey(new DocumentMetadata(pushApplicationId, DATABASE, alias)),
+						"{\"snapshot\":" + snapshot + "}", DOCUMENT_ID));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+		try {
+			EmbeddedCassandraServerHelper.cleanEmbeddedCassandra();
+		} catch (Exception e) {
+			// https://github.com/jsevellec/cassandra-unit/issues/220
+		}
+	}
+
+	@Benchmark
+	public List<DocumentContent> sequential() {
+		List<DocumentContent> docs = new ArrayList<>();
+		aliases.forEach(alias -> {
+			DocumentContent doc = documentDao
+					.findOne(new DocumentKey(new DocumentMetadata(pushApplicationId, DATABASE, alias)), DOCUMENT_ID);
+
+			if (doc != null)
+				docs.add(doc);
+		});
+
+		return docs;
+	}
+
+	@Benchmark
+	public List<DocumentContent> concurrent() {
+		return documentDao.findLatestForAliases(new DocumentKey(pushApplicationId, DATABASE), aliases, DOCUMENT_ID);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(FindLatestForAliasesBenchmark.class.getSimpleName()).build()).run();
+	}
+}
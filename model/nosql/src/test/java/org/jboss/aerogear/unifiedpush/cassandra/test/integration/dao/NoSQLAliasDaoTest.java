@@ -2,8 +2,14 @@ package org.jboss.aerogear.unifiedpush.cassandra.test.integration.dao;
 
 import static org.junit.Assert.assertTrue;
 
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneOffset;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.jboss.aerogear.unifiedpush.api.Alias;
 import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
@@ -79,6 +85,58 @@ public class NoSQLAliasDaoTest extends FixedKeyspaceCreatingIntegrationTest {
 		assertTrue(cache.get(new SimpleKey(alias.getPushApplicationId(), TEST_CACHE)) != null);
 	}
 
+	@Test
+	public void testUserIdCache() {
+		Alias alias = new Alias(UUID.randomUUID(), UUIDs.timeBased(), TEST_CACHE);
+		aliasDao.create(alias);
+		aliasDao.findOne(alias.getPushApplicationId(), alias.getId());
+
+		Cache cache = cacheManager.getCache(AliasDao.USERS_CACHE_NAME);
+		SimpleKey key = new SimpleKey(alias.getPushApplicationId(), alias.getId());
+		assertTrue(cache.get(key) != null);
+
+		// Aliases changed, user is evicted.
+		alias.setOther(TEST_PHONE);
+		aliasDao.create(alias);
+		assertTrue(cache.get(key) == null);
+		assertTrue(TEST_PHONE.equals(aliasDao.findOne(alias.getPushApplicationId(), alias.getId()).getOther()));
+
+		aliasDao.remove(alias.getPushApplicationId(), TEST_CACHE);
+		assertTrue(cache.get(key) == null);
+		assertTrue(aliasDao.findOne(alias.getPushApplicationId(), alias.getId()).getEmail() == null);
+	}
+
+	@Test
+	public void testMissingAliasCache() {
+		Alias alias = new Alias(UUID.randomUUID(), UUIDs.timeBased(), TEST_CACHE);
+		assertTrue(aliasDao.findByAlias(alias.getPushApplicationId(), TEST_CACHE) == null);
+
+		Cache cache = cacheManager.getCache(AliasDao.MISSING_CACHE_NAME);
+		SimpleKey key = new SimpleKey(alias.getPushApplicationId(), TEST_CACHE);
+		assertTrue(cache.get(key) != null);
+
+		// Created aliases are no longer missing.
+		aliasDao.create(alias);
+		assertTrue(cache.get(key) == null);
+		assertTrue(aliasDao.findByAlias(alias.getPushApplicationId(), TEST_CACHE) != null);
+	}
+
+	@Test
+	public void testMissingAliasCacheIsCaseSensitive() {
+		// Other aliases are stored in their original case only.
+		Alias alias = new Alias(UUID.randomUUID(), UUIDs.timeBased(), null, "Phone" + TEST_PHONE);
+		aliasDao.create(alias);
+
+		assertTrue(aliasDao.findByAlias(alias.getPushApplicationId(), "phone" + TEST_PHONE) == null);
+		assertTrue(aliasDao.findByAlias(alias.getPushApplicationId(), "Phone" + TEST_PHONE) != null);
+
+		// A lower case name created later is found by its mixed case lookup.
+		Alias lower = new Alias(UUID.randomUUID(), UUIDs.timeBased(), null, "other" + TEST_PHONE);
+		assertTrue(aliasDao.findByAlias(lower.getPushApplicationId(), "Other" + TEST_PHONE) == null);
+		aliasDao.create(lower);
+		assertTrue(aliasDao.findByAlias(lower.getPushApplicationId(), "Other" + TEST_PHONE) != null);
+	}
+
 	@Test
 	public void testDeleteAll() {
 		UUID pushApplicationId = UUID.randomUUID();
@@ -116,6 +174,26 @@ public class NoSQLAliasDaoTest extends FixedKeyspaceCreatingIntegrationTest {
 		assertTrue(alias.getPushApplicationId().equals(pushApplicationId1));
 	}
 
+	@Test
+	public void testFindUserIdsOfAllMonths() {
+		UUID pushApplicationId = UUID.randomUUID();
+
+		// One user per month partition.
+		Set<UUID> userIds = new HashSet<>();
+		for (Month month : Month.values()) {
+			long timestamp = LocalDateTime.of(2017, month, 15, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+			Alias alias = new Alias(pushApplicationId, UUIDs.startOf(timestamp), month + TEST_EMAIL);
+			aliasDao.create(alias);
+			userIds.add(alias.getId());
+		}
+
+		// Email and lower case email rows of each user.
+		List<UUID> scanned = aliasDao.findUserIds(pushApplicationId).map(row -> row.getUUID(0))
+				.collect(Collectors.toList());
+		assertTrue(scanned.size() == 24);
+		assertTrue(new HashSet<>(scanned).equals(userIds));
+	}
+
 	@Test
 	public void findOneAlias() {
 		UUID pushApplicationId = UUID.randomUUID();
@@ -2,6 +2,8 @@ package org.jboss.aerogear.unifiedpush.cassandra.test.integration.dao;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -261,6 +263,10 @@ public class NoSQLDocumentDaoTest extends FixedKeyspaceCreatingIntegrationTest {
 			Assert.assertTrue(documentDao.find(key1, new QueryOptions(null, null, null, 2)).collect(Collectors.toList())
 					.size() == 2);
 
+			// Count under the same constraints
+			assertEquals(2, documentDao.count(key1, new QueryOptions(null, null, null, 2)));
+			assertEquals(4, documentDao.count(key1, new QueryOptions()));
+
 		} catch (Throwable e) {
 			Assert.fail(e.getMessage());
 		}
@@ -297,6 +303,8 @@ public class NoSQLDocumentDaoTest extends FixedKeyspaceCreatingIntegrationTest {
 
 			assertEquals(100, documentDao.find(key, new QueryOptions("ID1")).collect(Collectors.toList()).size());
 			assertEquals(200, documentDao.find(key, new QueryOptions("ID1", 205)).collect(Collectors.toList()).size());
+			assertEquals(100, documentDao.count(key, new QueryOptions("ID1")));
+			assertEquals(200, documentDao.count(key, new QueryOptions("ID1", 205)));
 			assertEquals(90,
 					documentDao
 							.find(key,
@@ -308,4 +316,42 @@ public class NoSQLDocumentDaoTest extends FixedKeyspaceCreatingIntegrationTest {
 			Assert.fail(e.getMessage());
 		}
 	}
+
+	@Test
+	public void testLatestForAliases() {
+		UUID pushApplicationId = UUID.randomUUID();
+
+		List<Alias> aliases = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			Alias alias = new Alias(pushApplicationId, UUIDs.timeBased(), "latest" + i + "@aerobase.org");
+			aliasDao.create(alias);
+			aliases.add(alias);
+
+			// Aliases without documents are skipped
+			if (i % 10 == 5)
+				continue;
+
+			DocumentKey key = new DocumentKey(new DocumentMetadata(pushApplicationId.toString(), "STATUS", alias));
+			documentDao.create(new DocumentContent(key, "{ID1 " + i + "}", "ID1"));
+			key = new DocumentKey(new DocumentMetadata(pushApplicationId.toString(), "STATUS", alias));
+			documentDao.create(new DocumentContent(key, "{ID2 " + i + "}", "ID2"));
+		}
+
+		DocumentKey key = new DocumentKey(pushApplicationId, "STATUS");
+		UUID userId = key.getUserId();
+
+		List<DocumentContent> byId = documentDao.findLatestForAliases(key, aliases, "ID1");
+		List<DocumentContent> latest = documentDao.findLatestForAliases(key, aliases, null);
+
+		// Shared key is left untouched
+		assertEquals(userId, key.getUserId());
+
+		assertEquals(45, byId.size());
+		assertEquals("{ID1 0}", byId.get(0).getContent());
+		assertEquals("{ID1 49}", byId.get(44).getContent());
+
+		assertEquals(45, latest.size());
+		assertEquals("{ID2 0}", latest.get(0).getContent());
+		assertEquals("{ID2 49}", latest.get(44).getContent());
+	}
 }
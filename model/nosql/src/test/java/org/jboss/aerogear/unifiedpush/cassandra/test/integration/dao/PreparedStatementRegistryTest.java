@@ -0,0 +1,103 @@
+package org.jboss.aerogear.unifiedpush.cassandra.test.integration.dao;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.api.Alias;
+import org.jboss.aerogear.unifiedpush.api.document.DocumentMetadata;
+import org.jboss.aerogear.unifiedpush.api.document.QueryOptions;
+import org.jboss.aerogear.unifiedpush.cassandra.CassandraConfig;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.AliasDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DocumentDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.DocumentKey;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.LatencyHistogram;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.PreparedStatementRegistry;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
+import org.jboss.aerogear.unifiedpush.cassandra.test.integration.FixedKeyspaceCreatingIntegrationTest;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.LatencyTracker;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.utils.UUIDs;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = CassandraConfig.class)
+public class PreparedStatementRegistryTest extends FixedKeyspaceCreatingIntegrationTest {
+
+	@Autowired
+	private PreparedStatementRegistry statements;
+	@Autowired
+	private DocumentDao<DocumentContent, DocumentKey> documentDao;
+	@Autowired
+	private AliasDao aliasDao;
+	@Autowired
+	private Cluster cluster;
+
+	@Test
+	public void testLatencyByStatement() throws Exception {
+		UUID pushApplicationId = UUID.randomUUID();
+		Alias alias = new Alias(pushApplicationId, UUIDs.timeBased(), "prepared@aerobase.org");
+		aliasDao.create(alias);
+
+		DocumentKey key = new DocumentKey(new DocumentMetadata(pushApplicationId, "STATUS", alias));
+		documentDao.create(new DocumentContent(key, "{TEST CONTENT}", "ID1"));
+
+		long latest = count("documents.latest");
+		long users = count("users.select");
+
+		// Latencies are reported by the driver once the response was handled,
+		// trackers are called in registration order, after the registry.
+		CompletableFuture<Void> recorded = new CompletableFuture<>();
+		LatencyTracker tracker = new LatencyTracker() {
+			@Override
+			public void update(Host host, Statement statement, Exception exception, long newLatencyNanos) {
+				if (count("documents.latest") > latest && count("users.select") > users)
+					recorded.complete(null);
+			}
+
+			@Override
+			public void onRegister(Cluster cluster) {
+				// Nothing to do
+			}
+
+			@Override
+			public void onUnregister(Cluster cluster) {
+				// Nothing to do
+			}
+		};
+		cluster.register(tracker);
+
+		try {
+			Assert.assertNotNull(aliasDao.findOne(pushApplicationId, alias.getId()));
+			Assert.assertEquals("{TEST CONTENT}", documentDao
+					.findOne(new DocumentKey(new DocumentMetadata(pushApplicationId, "STATUS", alias)), null)
+					.getContent());
+			Assert.assertEquals(1, documentDao.find(new DocumentKey(new DocumentMetadata(pushApplicationId, "STATUS", alias)),
+					new QueryOptions("ID1")).count());
+
+			recorded.get(10, TimeUnit.SECONDS);
+		} finally {
+			cluster.unregister(tracker);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownStatement() {
+		statements.bind("unknown.select");
+	}
+
+	private long count(String name) {
+		LatencyHistogram histogram = statements.getHistograms().get(name);
+		Assert.assertNotNull(name, histogram);
+
+		return histogram.getCount();
+	}
+}
@@ -16,7 +16,13 @@
  */
 package org.jboss.aerogear.unifiedpush.message;
 
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -24,28 +30,59 @@ import javax.inject.Inject;
 import org.jboss.aerogear.unifiedpush.api.FlatPushMessageInformation;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.message.holder.MessageHolderWithTokens;
+import org.jboss.aerogear.unifiedpush.message.retry.CircuitBreaker;
+import org.jboss.aerogear.unifiedpush.message.retry.DispatchRetryScheduler;
+import org.jboss.aerogear.unifiedpush.message.retry.RetryPolicy;
 import org.jboss.aerogear.unifiedpush.message.sender.NotificationSenderCallback;
-import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
 import org.jboss.aerogear.unifiedpush.message.token.TokenLoader;
 import org.jboss.aerogear.unifiedpush.service.metrics.IPushMessageMetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
-import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
 
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 import reactor.core.publisher.WorkQueueProcessor;
 
 /**
  * Receives a request for dispatching push notifications to specified devices from {@link TokenLoader}
+ *
+ * Batches failing with a retryable error (see {@link RetryPolicy}) are dispatched again after an exponential backoff,
+ * at most <code>aerogear.dispatch.retry.maxAttempts</code> times (default 5), starting with
+ * <code>aerogear.dispatch.retry.initialDelayMillis</code> (default 1000) up to
+ * <code>aerogear.dispatch.retry.maxDelayMillis</code> (default 60000).
+ *
+ * Every push network and variant has its own {@link CircuitBreaker}: after <code>aerogear.dispatch.circuit.failureThreshold</code>
+ * (default 5) consecutive retryable failures, batches are parked in the {@link DispatchRetryScheduler} for
+ * <code>aerogear.dispatch.circuit.openMillis</code> (default 30000) instead of being sent. Batches parked for longer than
+ * <code>aerogear.dispatch.circuit.maxParkedMillis</code> (default 600000) are given up.
+ *
+ * The circuit states and retry counters are published under <code>/sys/info/dispatch</code>.
+ *
+ * Batches are sent by <code>aerogear.dispatch.workers</code> threads (default: number of cores). With
+ * <code>aerogear.dispatch.orderedPerVariant=true</code> the batches of a variant are always sent by the same worker,
+ * in the order they were loaded; retried batches are sent whenever their retry is due.
  */
 @Service
 public class NotificationDispatcher {
 
+    public static final String RETRY_MAX_ATTEMPTS = "aerogear.dispatch.retry.maxAttempts";
+    public static final String RETRY_INITIAL_DELAY_MILLIS = "aerogear.dispatch.retry.initialDelayMillis";
+    public static final String RETRY_MAX_DELAY_MILLIS = "aerogear.dispatch.retry.maxDelayMillis";
+    public static final String CIRCUIT_FAILURE_THRESHOLD = "aerogear.dispatch.circuit.failureThreshold";
+    public static final String CIRCUIT_OPEN_MILLIS = "aerogear.dispatch.circuit.openMillis";
+    public static final String CIRCUIT_MAX_PARKED_MILLIS = "aerogear.dispatch.circuit.maxParkedMillis";
+    public static final String DISPATCH_WORKERS = "aerogear.dispatch.workers";
+    public static final String ORDERED_PER_VARIANT = "aerogear.dispatch.orderedPerVariant";
+
+    private static final int circuitFailureThreshold = tryGetIntegerProperty(CIRCUIT_FAILURE_THRESHOLD, 5);
+    private static final int circuitOpenMillis = tryGetIntegerProperty(CIRCUIT_OPEN_MILLIS, 30000);
+    private static final int circuitMaxParkedMillis = tryGetIntegerProperty(CIRCUIT_MAX_PARKED_MILLIS, 600000);
+
     private final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
 
     @Inject
-    private ApplicationContext context;
+    private SenderRegistry senderRegistry;
 
     @Inject
     private IPushMessageMetricsService pushMessageMetricsService;
@@ -53,10 +90,31 @@ public class NotificationDispatcher {
 	@Inject
 	private WorkQueueProcessor<MessageHolderWithTokens> messages;
 
+    @Inject
+    private DispatchRetryScheduler retryScheduler;
+
+    private int workers = tryGetIntegerProperty(DISPATCH_WORKERS, Runtime.getRuntime().availableProcessors());
+    private boolean orderedPerVariant = Boolean.parseBoolean(tryGetProperty(ORDERED_PER_VARIANT, "false"));
+
+    private final RetryPolicy retryPolicy = new RetryPolicy(
+            tryGetIntegerProperty(RETRY_MAX_ATTEMPTS, 5),
+            tryGetIntegerProperty(RETRY_INITIAL_DELAY_MILLIS, 1000),
+            tryGetIntegerProperty(RETRY_MAX_DELAY_MILLIS, 60000));
+
+    // circuit breakers of variants which did not dispatch anything for an hour are dropped
+    private final Map<String, CircuitBreaker> circuitBreakers = ExpiringMap.builder()
+            .expiration(1, TimeUnit.HOURS)
+            .expirationPolicy(ExpirationPolicy.ACCESSED)
+            .build();
+
 	@PostConstruct
 	public void subscribe() {
-		messages.repeat().subscribe(m -> sendMessagesToPushNetwork(m));
+		retryScheduler.start(batch -> dispatch(batch.getMessage(), batch.getAttempt(), batch.getParkedSince()));
+		ParallelStage.subscribe(messages.repeat(), "notification-dispatcher", workers,
+				orderedPerVariant ? (MessageHolderWithTokens m) -> m.getVariant().getVariantID() : null,
+				this::sendMessagesToPushNetwork);
 	}
+
     /**
      * Receives a {@link UnifiedPushMessage} and list of device tokens that the message should be sent to, selects appropriate sender implementation that
      * the push notifications are submitted to.
@@ -64,16 +122,36 @@ public class NotificationDispatcher {
      * @param msg object containing details about the payload and the related device tokens
      */
     public void sendMessagesToPushNetwork(MessageHolderWithTokens msg) {
+        dispatch(msg, 1, 0);
+    }
+
+    /**
+     * @return the state of the circuit breaker of every push network and variant, keyed by <code>type:variantID</code>
+     */
+    public Map<String, CircuitBreaker.State> getCircuitStates() {
+        final Map<String, CircuitBreaker.State> states = new HashMap<>();
+        circuitBreakers.forEach((key, circuitBreaker) -> states.put(key, circuitBreaker.getState()));
+        return states;
+    }
+
+    private void dispatch(MessageHolderWithTokens msg, int attempt, long parkedSince) {
         final Variant variant = msg.getVariant();
         final UnifiedPushMessage unifiedPushMessage = msg.getUnifiedPushMessage();
         final Collection<String> deviceTokens = msg.getDeviceTokens();
+        final CircuitBreaker circuitBreaker = circuitBreakerFor(variant);
+
+        if (!circuitBreaker.allowRequest()) {
+            logger.debug("Circuit for {} variant ({}) is open, parking the batch", variant.getType().getTypeName(), variant.getVariantID());
+            park(msg, attempt, parkedSince == 0 ? System.currentTimeMillis() : parkedSince,
+                    circuitBreaker.remainingOpenMillis() + retryPolicy.backoffMillis(1));
+            return;
+        }
 
         logger.info(String.format("Received UnifiedPushMessage from queue, will now trigger the Push Notification delivery for the %s variant (%s)", variant.getType().getTypeName(), variant.getVariantID()));
 
         try {
         	// Any Unhandled exception will break this Flux stream
-    		BeanFactoryAnnotationUtils.qualifiedBeanOfType(
-    				context.getAutowireCapableBeanFactory(), PushNotificationSender.class, variant.getType().name())
+    		senderRegistry.getSender(variant.getType())
 			    		.sendPushMessage(variant, deviceTokens, unifiedPushMessage, msg.getPushMessageInformation().getId(),
 			                    new SenderServiceCallback(
 			                            variant,
@@ -81,12 +159,52 @@ public class NotificationDispatcher {
 			                            msg.getPushMessageInformation()
 			                    )
 			    		);
+            circuitBreaker.onSuccess();
         } catch (Throwable e) {
-        	logger.error("Unable to send push notification for %s variant ", variant.getName());
-        	// TODO - implement retry policy
+            if (retryPolicy.isRetryable(e)) {
+                circuitBreaker.onFailure();
+                logger.warn("Attempt {} to send push notification for {} variant failed: {}", attempt, variant.getName(), e.getMessage());
+                retryLater(msg, attempt, retryPolicy.backoffMillis(attempt), e.getMessage());
+            } else {
+                // a failing batch, e.g. one with broken credentials, does not tell anything about the push network
+                circuitBreaker.onIgnored();
+                logger.error("Unable to send push notification for {} variant", variant.getName(), e);
+            }
 		}
     }
 
+    private void retryLater(MessageHolderWithTokens msg, int attempt, long delayMillis, String reason) {
+        final Variant variant = msg.getVariant();
+
+        if (!retryPolicy.canRetry(attempt)) {
+            giveUp(msg, String.format("Giving up on '%s' delivery after %d attempts: %s", variant.getType().getTypeName(), attempt, reason));
+        } else if (!retryScheduler.schedule(msg, attempt + 1, delayMillis)) {
+            giveUp(msg, String.format("Dropped '%s' delivery, too many batches waiting for retry: %s", variant.getType().getTypeName(), reason));
+        }
+    }
+
+    // a parked batch was not sent at all, it keeps its attempt until the outage lasts too long
+    private void park(MessageHolderWithTokens msg, int attempt, long parkedSince, long delayMillis) {
+        final long parkedMillis = System.currentTimeMillis() - parkedSince;
+        if (parkedMillis >= circuitMaxParkedMillis) {
+            giveUp(msg, String.format("Giving up on '%s' delivery, push network not available for %d ms",
+                    msg.getVariant().getType().getTypeName(), parkedMillis));
+        } else if (!retryScheduler.schedule(msg, attempt, parkedSince, delayMillis)) {
+            giveUp(msg, String.format("Dropped '%s' delivery, too many batches waiting for retry: push network is not available",
+                    msg.getVariant().getType().getTypeName()));
+        }
+    }
+
+    private void giveUp(MessageHolderWithTokens msg, String reason) {
+        logger.error(reason);
+        pushMessageMetricsService.appendError(msg.getPushMessageInformation(), msg.getVariant(), reason);
+    }
+
+    private CircuitBreaker circuitBreakerFor(Variant variant) {
+        return circuitBreakers.computeIfAbsent(variant.getType().name() + ":" + variant.getVariantID(),
+                key -> new CircuitBreaker(circuitFailureThreshold, circuitOpenMillis));
+    }
+
     private class SenderServiceCallback implements NotificationSenderCallback {
         private final Variant variant;
         private final int tokenSize;
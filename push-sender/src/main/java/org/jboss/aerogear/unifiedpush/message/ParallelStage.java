@@ -0,0 +1,82 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.jboss.aerogear.unifiedpush.system.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs the handler of a messaging stage (token loading, dispatching) on several worker threads.
+ *
+ * The stage subscribes once to its processor and hands the messages over to <code>workers</code> threads. Without a
+ * lane key, messages go to whichever worker is next. With a lane key, all messages with the same key are handled by
+ * the same worker, in the order they were published, e.g. the batches of one variant.
+ *
+ * If enabled by {@link VirtualThreads}, the workers run on virtual threads, so a stage blocking on HTTP requests
+ * (e.g. the FCM sender) can be given many more workers than there are cores.
+ */
+public final class ParallelStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelStage.class);
+
+    private ParallelStage() {
+        // no-op
+    }
+
+    /**
+     * @param source the messages of the stage
+     * @param name the name of the worker threads
+     * @param workers the number of worker threads
+     * @param laneKey key of the messages which have to be handled in order, <code>null</code> if order does not matter
+     * @param handler handles a single message, exceptions are logged and do not stop the stage
+     * @param <T> type of the messages
+     *
+     * @return the subscription of the stage
+     */
+    public static <T> Disposable subscribe(Flux<T> source, String name, int workers, Function<T, ?> laneKey, Consumer<T> handler) {
+        final int lanes = Math.max(1, workers);
+        // at most one handler per lane runs at a time, the workers take no in-flight permits the senders wait for
+        final Scheduler scheduler = VirtualThreads.isEnabled()
+                ? Schedulers.fromExecutorService(VirtualThreads.newExecutor())
+                : Schedulers.newParallel(name, lanes, true);
+        final Consumer<T> safeHandler = message -> {
+            try {
+                handler.accept(message);
+            } catch (RuntimeException e) {
+                logger.error("Unhandled error in {} stage", name, e);
+            }
+        };
+
+        if (laneKey == null) {
+            return source.parallel(lanes).runOn(scheduler).subscribe(safeHandler);
+        }
+
+        // every group gets its own worker of the scheduler and keeps the order of its messages
+        return source.groupBy(message -> Math.floorMod(laneKey.apply(message).hashCode(), lanes))
+                .flatMap(lane -> lane.publishOn(scheduler).doOnNext(safeHandler), lanes)
+                .subscribe();
+    }
+}
@@ -20,19 +20,20 @@ import reactor.core.publisher.WorkQueueProcessor;
 public class SenderConfig {
 	public static final int BUFFER_SIZE = 256 * 256;
 
+	// all processors are published to by several threads (REST requests, token loaders, dispatchers)
 	@Bean
 	public WorkQueueProcessor<MessageHolderWithTokens> getTokensProcessor() {
-		return WorkQueueProcessor.<MessageHolderWithTokens>builder().bufferSize(BUFFER_SIZE).build();
+		return WorkQueueProcessor.<MessageHolderWithTokens>builder().share(true).bufferSize(BUFFER_SIZE).build();
 	}
 
 	@Bean
 	public TopicProcessor<MessageHolderWithVariants> getBatchProcessor() {
-		return TopicProcessor.<MessageHolderWithVariants>builder().bufferSize(BUFFER_SIZE).build();
+		return TopicProcessor.<MessageHolderWithVariants>builder().share(true).bufferSize(BUFFER_SIZE).build();
 	}
 
 	@Bean
 	public WorkQueueProcessor<iOSVariantUpdateEvent> getIOsVariantUpdateProcessor() {
-		return WorkQueueProcessor.<iOSVariantUpdateEvent>builder().build();
+		return WorkQueueProcessor.<iOSVariantUpdateEvent>builder().share(true).build();
 	}
 
 }
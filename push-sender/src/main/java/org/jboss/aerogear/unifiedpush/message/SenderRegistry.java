@@ -0,0 +1,98 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.jboss.aerogear.unifiedpush.api.VariantType;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the {@link PushNotificationSender} and {@link SenderConfiguration} of every {@link VariantType}.
+ *
+ * Looking the qualified beans up in the bean factory scans all bean definitions, which is too expensive to do for
+ * every batch. The beans are resolved once the context is refreshed and kept in {@link EnumMap}s; a type requested
+ * before that is resolved on first use.
+ */
+@Service
+public class SenderRegistry implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final Logger logger = LoggerFactory.getLogger(SenderRegistry.class);
+
+    @Inject
+    private ApplicationContext context;
+
+    private volatile Map<VariantType, PushNotificationSender> senders = Collections.emptyMap();
+    private volatile Map<VariantType, SenderConfiguration> configurations = Collections.emptyMap();
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        refresh(event.getApplicationContext());
+    }
+
+    /**
+     * @param variantType the push network
+     * @return the sender for the given push network
+     */
+    public PushNotificationSender getSender(VariantType variantType) {
+        final PushNotificationSender sender = senders.get(variantType);
+        return sender != null ? sender : lookup(context, PushNotificationSender.class, variantType);
+    }
+
+    /**
+     * @param variantType the push network
+     * @return the configuration of the given push network
+     */
+    public SenderConfiguration getConfiguration(VariantType variantType) {
+        final SenderConfiguration configuration = configurations.get(variantType);
+        return configuration != null ? configuration : lookup(context, SenderConfiguration.class, variantType);
+    }
+
+    synchronized void refresh(ApplicationContext applicationContext) {
+        senders = resolve(applicationContext, PushNotificationSender.class);
+        configurations = resolve(applicationContext, SenderConfiguration.class);
+    }
+
+    private <T> Map<VariantType, T> resolve(ApplicationContext applicationContext, Class<T> type) {
+        final Map<VariantType, T> resolved = new EnumMap<>(VariantType.class);
+        for (VariantType variantType : VariantType.values()) {
+            try {
+                resolved.put(variantType, lookup(applicationContext, type, variantType));
+            } catch (BeansException e) {
+                logger.warn("No {} registered for {} variants", type.getSimpleName(), variantType.getTypeName());
+            }
+        }
+        return resolved;
+    }
+
+    private static <T> T lookup(ApplicationContext applicationContext, Class<T> type, VariantType variantType) {
+        return BeanFactoryAnnotationUtils.qualifiedBeanOfType(applicationContext.getAutowireCapableBeanFactory(), type, variantType.name());
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.cache;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.api.Variant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+
+/**
+ * Caches one push network service (and so its access token and HTTP client) per variant credentials.
+ *
+ * Services are dropped a fixed time after their creation, so that a fresh access token is fetched before the old one
+ * expires. Changing the credentials of a variant results in a new cache key, the stale service simply expires.
+ *
+ * @param <V> the variant type
+ * @param <T> the service type
+ */
+public abstract class AbstractVariantServiceCache<V extends Variant, T> {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    final ConcurrentMap<String, T> serviceExpiringMap;
+
+    /**
+     * Creates new cache
+     *
+     * @param expiration how long a service is cached after its creation
+     * @param unit the unit of the expiration
+     */
+    protected AbstractVariantServiceCache(long expiration, TimeUnit unit) {
+        this.serviceExpiringMap = ExpiringMap.builder()
+                .expiration(expiration, unit)
+                .expirationPolicy(ExpirationPolicy.CREATED)
+                .build();
+    }
+
+    /**
+     * Returns the cached service of the given variant or uses the service constructor to create it.
+     *
+     * @param variant the variant
+     * @param constructor the service constructor
+     * @return the service instance
+     */
+    public T getServiceForVariant(final V variant, final ServiceConstructor<T> constructor) {
+        final String connectionKey = extractConnectionKey(variant);
+        T service = serviceExpiringMap.get(connectionKey);
+
+        if (service == null) {
+            logger.debug("no cached service for {}, creating it", variant.getVariantID());
+            service = constructor.construct();
+
+            final T cached = serviceExpiringMap.putIfAbsent(connectionKey, service);
+            if (cached != null) {
+                return cached; // created concurrently, stick to the cached one
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Drops the cached service, e.g. when the push network rejected its access token.
+     *
+     * @param variant the variant
+     */
+    public void evict(final V variant) {
+        if (serviceExpiringMap.remove(extractConnectionKey(variant)) != null) {
+            logger.debug("Removed service from cache for {}", variant.getVariantID());
+        }
+    }
+
+    /**
+     * @param variant the variant
+     * @return key identifying the variant and its current credentials
+     */
+    protected abstract String extractConnectionKey(V variant);
+}
@@ -0,0 +1,46 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.cache;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.adm.AdmService;
+import org.jboss.aerogear.unifiedpush.api.AdmVariant;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caches one {@link AdmService} (and so its OAuth access token) per ADM variant credentials.
+ *
+ * ADM access tokens are valid for one hour, cached services are therefore dropped 50 minutes after their creation.
+ */
+@Service
+public class AdmServiceCache extends AbstractVariantServiceCache<AdmVariant, AdmService> {
+
+    public AdmServiceCache() {
+        super(50, TimeUnit.MINUTES);
+    }
+
+    @Override
+    protected String extractConnectionKey(final AdmVariant variant) {
+        return new StringBuilder()
+                .append(variant.getVariantID())
+                .append('-')
+                .append(Objects.hash(variant.getClientId(), variant.getClientSecret()))
+                .toString();
+    }
+}
@@ -16,9 +16,21 @@
  */
 package org.jboss.aerogear.unifiedpush.message.cache;
 
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -26,6 +38,8 @@ import javax.inject.Inject;
 
 import org.jboss.aerogear.unifiedpush.api.iOSVariant;
 import org.jboss.aerogear.unifiedpush.event.iOSVariantUpdateEvent;
+import org.jboss.aerogear.unifiedpush.message.sender.apns.ApnsClientFactory;
+import org.jboss.aerogear.unifiedpush.service.GenericVariantService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -39,33 +53,72 @@ import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 import reactor.core.publisher.WorkQueueProcessor;
 
+/**
+ * Caches connected APNs clients per iOS variant (or per signing key, for token based variants).
+ *
+ * Connections which were not used for <code>aerogear.ios.connectionIdleMinutes</code> (default 12 hours) are closed.
+ * With <code>aerogear.ios.prewarm=true</code> connections are established ahead of the first send: on startup for all
+ * variants which sent push messages within the last <code>aerogear.ios.prewarmActiveHours</code> (default 24 hours), and
+ * right after a cached connection got replaced because its variant was updated.
+ *
+ * Hits, misses, connects and disconnects are published under <code>/sys/info/apns</code>.
+ */
 @Service
 public class SimpleApnsClientCache {
 
+    public static final String APNS_CONNECTION_IDLE_MINUTES = "aerogear.ios.connectionIdleMinutes";
+    public static final String APNS_PREWARM = "aerogear.ios.prewarm";
+    public static final String APNS_PREWARM_ACTIVE_HOURS = "aerogear.ios.prewarmActiveHours";
+
+    private static final int connectionIdleMinutes = tryGetIntegerProperty(APNS_CONNECTION_IDLE_MINUTES, 12 * 60);
+    private static final boolean prewarm = Boolean.parseBoolean(tryGetProperty(APNS_PREWARM, "false"));
+    private static final int prewarmActiveHours = tryGetIntegerProperty(APNS_PREWARM_ACTIVE_HOURS, 24);
+
     private final Logger logger = LoggerFactory.getLogger(SimpleApnsClientCache.class);
 
     @Inject
     private WorkQueueProcessor<iOSVariantUpdateEvent> variantUpdateEventEvent;
+    @Inject
+    private ApnsClientFactory apnsClientFactory;
+    @Inject
+    private GenericVariantService genericVariantService;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder connects = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    private final ExecutorService prewarmExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "apns-prewarm");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @PostConstruct
     public void subscribe(){
 		for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
 			variantUpdateEventEvent.take(1).repeat().subscribe(s -> disconnectOnChange(s));
 		}
+
+        if (prewarm) {
+            prewarmExecutor.execute(this::prewarmRecentlyActiveVariants);
+        }
     }
 
+    // one monitor per connection key, held while its connection gets established
+    private final ConcurrentMap<String, Object> connectLocks = new ConcurrentHashMap<>();
+
     final ConcurrentMap<String, ApnsClient> apnsClientExpiringMap;
     {
         apnsClientExpiringMap = ExpiringMap.builder()
-
-                // TODO: would be nice if it could be configured via System property:
-                .expiration(12, TimeUnit.HOURS)
+                .expiration(connectionIdleMinutes, TimeUnit.MINUTES)
                 .expirationPolicy(ExpirationPolicy.ACCESSED)
                 .asyncExpirationListener((ExpirationListener<String, ApnsClient>) (variantID, apnsClient) -> {
 
                     if (apnsClient.isConnected()) {
-                        logger.info("APNs connection for iOS Variant ({}) was inactive last 12 hours, disconnecting...", variantID);
+                        logger.info("APNs connection for iOS Variant ({}) was inactive last {} minutes, disconnecting...", variantID, connectionIdleMinutes);
 
+                        disconnects.increment();
                         final Future<Void> disconnectFuture = apnsClient.disconnect();
 
                         disconnectFuture.addListener(future -> {
@@ -86,22 +139,103 @@ public class SimpleApnsClientCache {
         ApnsClient client = apnsClientExpiringMap.get(connectionKey);
 
         if (client == null) {
+            misses.increment();
             logger.debug("no cached connection for {}, establishing it", connectionKey);
-            synchronized (apnsClientExpiringMap) {
-                client = constructor.construct();
-
-                if (client.isConnected()) {
-                    putApnsClientForVariantID(connectionKey, client);
-                }
-
-                return client; // return the newly connected client
-            }
+            return connect(connectionKey, constructor);
         } else {
+            hits.increment();
             logger.debug("reusing cached connection for {}", connectionKey);
             return client; // we had it already
         }
     }
 
+    /**
+     * Establishes the connection of the given variant in the background, unless it is cached already.
+     *
+     * @param iOSVariant the variant to connect
+     */
+    public void prewarm(final iOSVariant iOSVariant) {
+        prewarmExecutor.execute(() -> {
+            final String connectionKey = extractConnectionKey(iOSVariant);
+            if (apnsClientExpiringMap.containsKey(connectionKey)) {
+                return;
+            }
+
+            try {
+                logger.debug("prewarming connection for {}", connectionKey);
+                connect(connectionKey, () -> apnsClientFactory.connect(iOSVariant));
+            } catch (RuntimeException e) {
+                logger.warn("Unable to prewarm APNs connection for iOS Variant ({})", iOSVariant.getVariantID(), e);
+            }
+        });
+    }
+
+    /**
+     * @return number of lookups served by a cached connection
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups which had to establish a new connection
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of connections established, including prewarmed ones
+     */
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    /**
+     * @return number of connections closed, because they were idle, replaced or the server shuts down
+     */
+    public long getDisconnects() {
+        return disconnects.sum();
+    }
+
+    /**
+     * @return number of cached connections
+     */
+    public int size() {
+        return apnsClientExpiringMap.size();
+    }
+
+    private ApnsClient connect(final String connectionKey, final ServiceConstructor<ApnsClient> constructor) {
+        // handshakes of other connections do not wait for this one, only concurrent connects of the same key do
+        synchronized (connectLocks.computeIfAbsent(connectionKey, key -> new Object())) {
+            final ApnsClient cachedClient = apnsClientExpiringMap.get(connectionKey);
+            if (cachedClient != null) {
+                return cachedClient; // connected by a concurrent sender or prewarm
+            }
+
+            final ApnsClient client = constructor.construct();
+
+            if (client.isConnected()) {
+                connects.increment();
+                return putApnsClientForVariantID(connectionKey, client);
+            }
+
+            return client; // return the newly connected client
+        }
+    }
+
+    private void prewarmRecentlyActiveVariants() {
+        try {
+            final Date since = new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(prewarmActiveHours));
+            final List<iOSVariant> variants = genericVariantService.findVariantsWithMessagesSince(iOSVariant.class, since);
+
+            logger.info("prewarming APNs connections for {} recently active iOS variants", variants.size());
+            variants.forEach(this::prewarm);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to load recently active iOS variants, connections are established on first use", e);
+        }
+    }
+
     /**
      * Receives iOS variant change event to remove client from the cache and also tear down the connection.
      * @param iOSVariantUpdateEvent event fired when updating the variant
@@ -109,11 +243,27 @@ public class SimpleApnsClientCache {
     public void disconnectOnChange(final iOSVariantUpdateEvent iOSVariantUpdateEvent) {
         final iOSVariant variant = iOSVariantUpdateEvent.getiOSVariant();
         final String connectionKey = extractConnectionKey(variant);
+
+        if (variant.isTokenBasedAuthentication()) {
+            // the connection is shared with other variants using the same key, only drop it once it broke.
+            // A changed key maps to another connection, the previous one expires once idle.
+            final ApnsClient sharedClient = apnsClientExpiringMap.get(connectionKey);
+            if (sharedClient != null && !sharedClient.isConnected() && apnsClientExpiringMap.remove(connectionKey, sharedClient)) {
+                logger.debug("Removed disconnected shared client from cache for {}", connectionKey);
+            }
+            return;
+        }
+
         final ApnsClient client = apnsClientExpiringMap.remove(connectionKey);
         logger.debug("Removed client from cache for {}", variant.getVariantID());
         try{
 	        if (client != null) {
 	            tearDownApnsHttp2Connection(client);
+
+	            // the variant was in use, connect it with its new settings right away
+	            if (prewarm) {
+	                prewarm(variant);
+	            }
 	        }
         }catch (Throwable e) {
         	logger.error("Error while disconnecting ios variant", e);
@@ -121,25 +271,56 @@ public class SimpleApnsClientCache {
     }
 
     private String extractConnectionKey(final iOSVariant iOSVariant) {
-        final StringBuilder sb = new StringBuilder()
-                .append(iOSVariant.getVariantID())
-                .append(iOSVariant.isProduction() ? "-prod" : "-dev");
+        final StringBuilder sb = new StringBuilder();
+
+        if (iOSVariant.isTokenBasedAuthentication()) {
+            // connections authenticated by a signing key are not bound to an app (the topic is set per notification),
+            // all variants using the very same key share them. The key digest keeps other tenants (and rotated keys)
+            // from reusing an authenticated connection
+            sb.append("team-")
+                    .append(iOSVariant.getTeamId())
+                    .append('-')
+                    .append(iOSVariant.getKeyId())
+                    .append('-')
+                    .append(sha256Hex(iOSVariant.getPrivateKey()));
+        } else {
+            sb.append(iOSVariant.getVariantID());
+        }
+        sb.append(iOSVariant.isProduction() ? "-prod" : "-dev");
 
         return  sb.toString();
     }
 
-    private void putApnsClientForVariantID(final String variantID, final ApnsClient apnsClient) {
+    private static String sha256Hex(final String value) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ApnsClient putApnsClientForVariantID(final String variantID, final ApnsClient apnsClient) {
         final ApnsClient client = apnsClientExpiringMap.putIfAbsent(variantID, apnsClient);
         if (client != null) {
             logger.warn("duplicate connection in pool, immediately shutting down the new connection");
             tearDownApnsHttp2Connection(apnsClient);  // we do not want this new connection
+            return client;
         }
+        return apnsClient;
     }
 
     @PreDestroy
     public void cleanUpConnection() {
 
         logger.debug("remove all connections before server shutdown");
+        prewarmExecutor.shutdownNow();
 
         for (final Map.Entry<String, ApnsClient> cachedConnection : apnsClientExpiringMap.entrySet()) {
 
@@ -150,6 +331,7 @@ public class SimpleApnsClientCache {
 
     private void tearDownApnsHttp2Connection(final ApnsClient client) {
         if (client.isConnected()) {
+            disconnects.increment();
             logger.trace("Tearing down connection to APNs for the given client");
             client.disconnect().addListener(new ApnsDisconnectFutureListener());
         }
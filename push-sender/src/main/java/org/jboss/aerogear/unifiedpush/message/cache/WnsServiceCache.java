@@ -0,0 +1,48 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.cache;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.api.WindowsWNSVariant;
+import org.springframework.stereotype.Service;
+
+import ar.com.fernandospr.wns.WnsService;
+
+/**
+ * Caches one {@link WnsService} (and so its OAuth access token and HTTP client) per WNS variant credentials.
+ *
+ * WNS access tokens are valid for 24 hours, cached services are therefore dropped 12 hours after their creation,
+ * so that a fresh token is fetched well before the old one expires.
+ */
+@Service
+public class WnsServiceCache extends AbstractVariantServiceCache<WindowsWNSVariant, WnsService> {
+
+    public WnsServiceCache() {
+        super(12, TimeUnit.HOURS);
+    }
+
+    @Override
+    protected String extractConnectionKey(final WindowsWNSVariant variant) {
+        return new StringBuilder()
+                .append(variant.getVariantID())
+                .append('-')
+                .append(Objects.hash(variant.getSid(), variant.getClientSecret()))
+                .toString();
+    }
+}
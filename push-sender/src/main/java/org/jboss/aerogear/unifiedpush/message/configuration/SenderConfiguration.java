@@ -33,6 +33,7 @@ public class SenderConfiguration {
 
     private int batchesToLoad;
     private int batchSize;
+    private int concurrency = 1;
 
     public SenderConfiguration() {
     }
@@ -48,6 +49,18 @@ public class SenderConfiguration {
         this.batchSize = batchSize;
     }
 
+    /**
+     * Creates a new configuration with the configuration values provided
+     *
+     * @param batchesToLoad specifies how many batches should be loaded in one transaction (see {@link #batchesToLoad()}
+     * @param batchSize specifies how many devices will be loaded and delivered in one batch (see {@link #batchSize()}
+     * @param concurrency specifies how many requests of one batch are sent in parallel (see {@link #concurrency()}
+     */
+    public SenderConfiguration(int batchesToLoad, int batchSize, int concurrency) {
+        this(batchesToLoad, batchSize);
+        this.concurrency = concurrency;
+    }
+
     /**
      * Specifies how many batches should be loaded in one token-loading transaction.
      *
@@ -87,6 +100,22 @@ public class SenderConfiguration {
         this.batchSize = batchSize;
     }
 
+    /**
+     * Concurrency specifies how many requests of one batch the {@link PushNotificationSender} submits in parallel.
+     *
+     * Only applies to push networks which require one request per device (e.g. WNS or SimplePush),
+     * networks accepting a whole batch in one request ignore it.
+     *
+     * @return the number of parallel requests per batch
+     */
+    public int concurrency() {
+        return concurrency;
+    }
+
+    void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
     /**
      * This is a derived property, computed as a product of {@link #batchesToLoad()} and {@link #batchSize()}.
      *
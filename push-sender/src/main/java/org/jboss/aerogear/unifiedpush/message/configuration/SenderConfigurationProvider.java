@@ -58,7 +58,7 @@ public class SenderConfigurationProvider {
     @Bean
     @Qualifier(VariantType.ADMQ)
     public SenderConfiguration produceAdmConfiguration() {
-        return loadConfigurationFor(VariantType.ADM, new SenderConfiguration(10, 1000));
+        return loadConfigurationFor(VariantType.ADM, new SenderConfiguration(10, 1000, 10));
     }
 
     @Bean
@@ -70,19 +70,20 @@ public class SenderConfigurationProvider {
     @Bean
     @Qualifier(VariantType.SIMPLEPUSHQ)
     public SenderConfiguration produceSimplePushConfiguration() {
-        return loadConfigurationFor(VariantType.SIMPLE_PUSH, new SenderConfiguration(10, 1000));
+        return loadConfigurationFor(VariantType.SIMPLE_PUSH, new SenderConfiguration(10, 1000, 10));
     }
 
     @Bean
     @Qualifier(VariantType.WINDOWSWNSQ)
     public SenderConfiguration produceWindowsWnsConfiguration() {
-        return loadConfigurationFor(VariantType.WINDOWS_WNS, new SenderConfiguration(10, 1000));
+        return loadConfigurationFor(VariantType.WINDOWS_WNS, new SenderConfiguration(10, 1000, 10));
     }
 
     private SenderConfiguration loadConfigurationFor(VariantType type, SenderConfiguration defaultConfiguration) {
         return validateAndSanitizeConfiguration(type, new SenderConfiguration(
                 getProperty(type, ConfigurationProperty.batchesToLoad, defaultConfiguration.batchesToLoad(), Integer.class),
-                getProperty(type, ConfigurationProperty.batchSize, defaultConfiguration.batchSize(), Integer.class)
+                getProperty(type, ConfigurationProperty.batchSize, defaultConfiguration.batchSize(), Integer.class),
+                getProperty(type, ConfigurationProperty.concurrency, defaultConfiguration.concurrency(), Integer.class)
             ));
     }
 
@@ -102,6 +103,12 @@ public class SenderConfigurationProvider {
             default:
                 break;
         }
+        if (configuration.concurrency() < 1) {
+            logger.warn(String
+                    .format("Sender configuration -D%s=%s is invalid: at least one request has to be sent at a time",
+                            getSystemPropertyName(type, ConfigurationProperty.concurrency), configuration.concurrency()));
+            configuration.setConcurrency(1);
+        }
         return configuration;
     }
 
@@ -127,6 +134,7 @@ public class SenderConfigurationProvider {
      */
     private enum ConfigurationProperty {
         batchesToLoad,
-		batchSize
+		batchSize,
+		concurrency
 	}
 }
@@ -0,0 +1,145 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.retry;
+
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.jboss.aerogear.unifiedpush.message.holder.MessageHolderWithTokens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds batches which failed to dispatch, or were parked by an open {@link CircuitBreaker}, until their next attempt is due.
+ *
+ * The queue is bounded by <code>aerogear.dispatch.retry.queueSize</code> (default 10000), batches which do not fit are
+ * dropped. A single daemon worker hands due batches back to the handler registered with {@link #start(Consumer)}, one
+ * after another, so a recovering push network is not hit by all parked batches at once.
+ */
+@Service
+public class DispatchRetryScheduler {
+
+    public static final String RETRY_QUEUE_SIZE = "aerogear.dispatch.retry.queueSize";
+
+    private static final int queueSize = tryGetIntegerProperty(RETRY_QUEUE_SIZE, 10000);
+
+    private final Logger logger = LoggerFactory.getLogger(DispatchRetryScheduler.class);
+
+    private final DelayQueue<ScheduledBatch> queue = new DelayQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private Thread worker;
+
+    /**
+     * Starts handing due batches to the given handler.
+     *
+     * @param handler receives every batch once its delay elapsed
+     */
+    public synchronized void start(final Consumer<ScheduledBatch> handler) {
+        if (worker != null) {
+            throw new IllegalStateException("retry scheduler already started");
+        }
+
+        worker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    final ScheduledBatch batch = queue.take();
+                    pending.decrementAndGet();
+                    handler.accept(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    logger.error("Unable to retry dispatch of batch", e);
+                }
+            }
+        }, "dispatch-retry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    /**
+     * Schedules the batch for the given attempt.
+     *
+     * @param message the batch to dispatch again
+     * @param attempt the number of the upcoming attempt
+     * @param delayMillis the time to wait before the attempt
+     * @return <code>false</code> if the queue is full and the batch was dropped
+     */
+    public boolean schedule(final MessageHolderWithTokens message, final int attempt, final long delayMillis) {
+        return schedule(message, attempt, 0, delayMillis);
+    }
+
+    /**
+     * Schedules a batch parked by an open circuit for the given attempt.
+     *
+     * @param message the batch to dispatch again
+     * @param attempt the number of the upcoming attempt
+     * @param parkedSince the time the batch was first parked
+     * @param delayMillis the time to wait before the attempt
+     * @return <code>false</code> if the queue is full and the batch was dropped
+     */
+    public boolean schedule(final MessageHolderWithTokens message, final int attempt, final long parkedSince, final long delayMillis) {
+        if (pending.incrementAndGet() > queueSize) {
+            pending.decrementAndGet();
+            dropped.increment();
+            return false;
+        }
+
+        queue.put(new ScheduledBatch(message, attempt, parkedSince, delayMillis));
+        scheduled.increment();
+        return true;
+    }
+
+    /**
+     * @return number of batches waiting for their next attempt
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return number of batches scheduled for another attempt
+     */
+    public long getScheduled() {
+        return scheduled.sum();
+    }
+
+    /**
+     * @return number of batches dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
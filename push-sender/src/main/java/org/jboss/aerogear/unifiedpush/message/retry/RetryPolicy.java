@@ -0,0 +1,80 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.retry;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+import org.jboss.aerogear.unifiedpush.message.exception.DispatchInitiationException;
+
+/**
+ * Decides which dispatch failures are retried and how long to wait before the next attempt.
+ *
+ * Only failures which guarantee nothing was delivered are retried: {@link DispatchInitiationException}s (e.g. the push
+ * network answered with a 5xx or could not be reached), connect failures and timeouts. The delay grows exponentially
+ * with every attempt, up to <code>maxDelayMillis</code>, and half of it is randomized so batches failing together are
+ * not retried together.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public boolean isRetryable(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DispatchInitiationException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof ConnectException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param attempt the number of attempts made so far, starting with 1
+     * @return <code>true</code> if another attempt may be made
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    /**
+     * @param attempt the number of attempts made so far, starting with 1
+     * @return the delay before the next attempt, between half and the full exponential backoff
+     */
+    public long backoffMillis(int attempt) {
+        final int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+        final long backoff = Math.min(maxDelayMillis, initialDelayMillis << exponent);
+        final long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
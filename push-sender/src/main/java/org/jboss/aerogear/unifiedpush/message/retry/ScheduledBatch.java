@@ -0,0 +1,68 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.retry;
+
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.message.holder.MessageHolderWithTokens;
+
+/**
+ * A batch waiting in the {@link DispatchRetryScheduler} for its next dispatch attempt.
+ */
+public class ScheduledBatch implements Delayed {
+
+    private final MessageHolderWithTokens message;
+    private final int attempt;
+    private final long parkedSince;
+    private final long dueAt;
+
+    ScheduledBatch(MessageHolderWithTokens message, int attempt, long parkedSince, long delayMillis) {
+        this.message = message;
+        this.attempt = attempt;
+        this.parkedSince = parkedSince;
+        this.dueAt = System.currentTimeMillis() + delayMillis;
+    }
+
+    public MessageHolderWithTokens getMessage() {
+        return message;
+    }
+
+    /**
+     * @return the number of the attempt this batch is scheduled for, the first retry is attempt 2
+     */
+    public int getAttempt() {
+        return attempt;
+    }
+
+    /**
+     * @return the time the batch was first parked by an open circuit, <code>0</code> if it was not parked
+     */
+    public long getParkedSince() {
+        return parkedSince;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+    }
+}
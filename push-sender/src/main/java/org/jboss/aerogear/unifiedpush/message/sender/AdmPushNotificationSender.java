@@ -6,7 +6,7 @@
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
  *
- * 	http://www.apache.org/licenses/LICENSE-2.0
+ *     http://www.apache.org/licenses/LICENSE-2.0
  *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
@@ -25,22 +25,105 @@ import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.api.VariantType;
 import org.jboss.aerogear.unifiedpush.message.InternalUnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.cache.AdmServiceCache;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
+
+import javax.inject.Inject;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 @Qualifier(VariantType.ADMQ)
 public class AdmPushNotificationSender implements PushNotificationSender {
     private final Logger logger = LoggerFactory.getLogger(AdmPushNotificationSender.class);
 
+    // java-adm has no typed error, a rejected message fails with the ADM status code and response body, e.g.
+    // "ERROR: The enqueue request failed with a 410 response code, with the following message: {"reason":"Unregistered"}"
+    private static final Pattern STATUS_CODE = Pattern.compile("\\b([1-5]\\d\\d) response code");
+    private static final Pattern REASON = Pattern.compile("\"reason\"\\s*:\\s*\"(\\w+)\"");
+
+    @Inject
+    private ClientInstallationAsyncService clientInstallationAsyncService;
+
+    @Inject
+    private AdmServiceCache admServiceCache;
+
+    @Inject
+    private SenderExecutor senderExecutor;
+
+    @Autowired
+    @Qualifier(VariantType.ADMQ)
+    private SenderConfiguration configuration;
+
+    // payloads of the messages currently being delivered, one message is sent in many batches
+    private final ConcurrentMap<String, String> payloads = ExpiringMap.builder()
+            .expiration(10, TimeUnit.MINUTES)
+            .expirationPolicy(ExpirationPolicy.ACCESSED)
+            .build();
+
     @Override
     public void sendPushMessage(Variant variant, Collection<String> clientIdentifiers, UnifiedPushMessage pushMessage, String pushMessageInformationId, NotificationSenderCallback senderCallback) {
-        final AdmService admService = ADM.newService();
+        // no need to send empty list
+        if (clientIdentifiers.isEmpty()) {
+            return;
+        }
+
+        final AdmVariant admVariant = (AdmVariant) variant;
+        final AdmService admService = admServiceCache.getServiceForVariant(admVariant, ADM::newService);
+        // messages without id are not cached, the map does not take null keys
+        final String payload = pushMessageInformationId == null
+                ? createPayload(pushMessage, null)
+                : payloads.computeIfAbsent(pushMessageInformationId, id -> createPayload(pushMessage, id));
+
+        final Set<String> unregisteredTokens = ConcurrentHashMap.newKeySet();
+        final List<Boolean> results = senderExecutor.invokeAll(clientIdentifiers, configuration.concurrency(), token -> {
+            try {
+                admService.sendMessageToDevice(token, admVariant.getClientId(), admVariant.getClientSecret(), payload);
+                return Boolean.TRUE;
+            } catch (Exception e) {
+                if (isUnregistered(e)) {
+                    unregisteredTokens.add(token);
+                } else {
+                    logger.error("Error sending payload to ADM server", e);
+                }
+                return Boolean.FALSE;
+            }
+        });
+
+        final long successes = results.stream().filter(Boolean::booleanValue).count();
+        final long failures = clientIdentifiers.size() - successes - unregisteredTokens.size();
+        logger.info(String.format("Sent push notification to Amazon's ADM Server for %d tokens (%d delivered, %d unregistered, %d failed)",
+                clientIdentifiers.size(), successes, unregisteredTokens.size(), failures));
 
+        if (!unregisteredTokens.isEmpty()) {
+            logger.info(String.format("Deleting '%d' unregistered ADM installations", unregisteredTokens.size()));
+            clientInstallationAsyncService.removeInstallationsForVariantByDeviceTokens(variant.getVariantID(), unregisteredTokens);
+        }
+
+        if (failures > 0) {
+            senderCallback.onError(String.format("Error sending payload to ADM server for %d of %d tokens (%d delivered)",
+                    failures, clientIdentifiers.size(), successes));
+        } else {
+            senderCallback.onSuccess();
+        }
+    }
+
+    static String createPayload(UnifiedPushMessage pushMessage, String pushMessageInformationId) {
         final PayloadBuilder builder = ADM.newPayload();
 
         //flatten the "special keys"
@@ -65,17 +148,32 @@ public class AdmPushNotificationSender implements PushNotificationSender {
         //add the aerogear-push-id
         builder.dataField(InternalUnifiedPushMessage.PUSH_MESSAGE_ID, pushMessageInformationId);
 
-        final AdmVariant admVariant = (AdmVariant) variant;
+        return builder.build();
+    }
 
-        clientIdentifiers.forEach(token -> {
-            try {
-                admService.sendMessageToDevice(token, admVariant.getClientId(), admVariant.getClientSecret(),  builder.build());
-                senderCallback.onSuccess();
-            } catch (Exception e) {
-                logger.error("Error sending payload to ADM server", e);
-                senderCallback.onError(e.getMessage());
-            }
-        });
-        logger.info(String.format("Sent push notification to Amazon's ADM Server for %d tokens",clientIdentifiers.size()));
+    /**
+     * A registration id is no longer valid if ADM answers 410 (Gone, reason <code>Unregistered</code>) or 400 with the
+     * reason <code>InvalidRegistrationId</code>. Other 400 reasons, e.g. <code>InvalidData</code>, are caused by the message.
+     */
+    static boolean isUnregistered(Exception e) {
+        final String message = e.getMessage();
+        if (message == null) {
+            return false;
+        }
+
+        final Matcher statusCode = STATUS_CODE.matcher(message);
+        if (!statusCode.find()) {
+            return false;
+        }
+
+        switch (Integer.parseInt(statusCode.group(1))) {
+            case 410:
+                return true;
+            case 400:
+                final Matcher reason = REASON.matcher(message);
+                return reason.find() && "InvalidRegistrationId".equals(reason.group(1));
+            default:
+                return false;
+        }
     }
 }
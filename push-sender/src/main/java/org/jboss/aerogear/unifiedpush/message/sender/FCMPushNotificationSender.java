@@ -33,6 +33,7 @@ import org.jboss.aerogear.unifiedpush.api.VariantType;
 import org.jboss.aerogear.unifiedpush.message.InternalUnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.Priority;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.exception.PushNetworkUnreachableException;
 import org.jboss.aerogear.unifiedpush.message.sender.fcm.ConfigurableFCMSender;
 import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
 import org.jboss.aerogear.unifiedpush.service.ClientInstallationService;
@@ -42,6 +43,7 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import com.google.android.gcm.server.Constants;
+import com.google.android.gcm.server.InvalidRequestException;
 import com.google.android.gcm.server.Message;
 import com.google.android.gcm.server.Message.Builder;
 import com.google.android.gcm.server.MulticastResult;
@@ -129,6 +131,9 @@ public class FCMPushNotificationSender implements PushNotificationSender {
             logger.debug("Message batch to FCM has been submitted");
             callback.onSuccess();
 
+        } catch (PushNetworkUnreachableException e) {
+            // handed to the dispatcher, which retries the batch
+            throw e;
         } catch (Exception e) {
             // FCM exceptions:
             callback.onError(String.format("Error sending payload to FCM server: %s", e.getMessage()));
@@ -154,7 +159,18 @@ public class FCMPushNotificationSender implements PushNotificationSender {
             }
         } else {
             logger.info(String.format("Sent push notification to FCM Server for %d registrationIDs", pushTargets.size()));
-            MulticastResult multicastResult = sender.sendNoRetry(fcmMessage, pushTargets);
+            final MulticastResult multicastResult;
+            try {
+                multicastResult = sender.sendNoRetry(fcmMessage, pushTargets);
+            } catch (InvalidRequestException e) {
+                if (e.getHttpStatusCode() >= 500) {
+                    // FCM did not process the request, the batch can be sent again
+                    throw new PushNetworkUnreachableException(e);
+                }
+                throw e;
+            } catch (IOException e) {
+                throw new PushNetworkUnreachableException(e);
+            }
 
             logger.trace("Response from FCM request: {}", multicastResult);
 
@@ -0,0 +1,133 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.jboss.aerogear.unifiedpush.system.VirtualThreads;
+import org.springframework.stereotype.Service;
+
+/**
+ * Executes the blocking, per device, requests of a batch in parallel.
+ *
+ * Push networks like WNS or SimplePush require one HTTP request per device, sending them one after another
+ * makes the batch latency the sum of all round-trips. The executor runs at most <code>concurrency</code>
+ * requests of one batch at a time, each worker takes the next device as soon as its previous request completed.
+ *
+ * The workers are platform threads of a pool of at most <code>aerogear.sender.threads</code> (default 200) threads shared
+ * by all batches, or virtual threads if enabled by {@link VirtualThreads}. Requests not finding an idle thread wait in
+ * the queue of the pool.
+ */
+@Service
+public class SenderExecutor {
+
+    public static final String SENDER_THREADS = "aerogear.sender.threads";
+
+    private final ExecutorService executor = VirtualThreads.isEnabled()
+            ? VirtualThreads.newLimitedExecutor()
+            : newThreadPool(Math.max(1, tryGetIntegerProperty(SENDER_THREADS, 200)));
+
+    /**
+     * Applies the task to all items, running at most <code>concurrency</code> tasks in parallel.
+     * Blocks until all tasks completed.
+     *
+     * @param items the items (e.g. device tokens) to process
+     * @param concurrency upper bound of parallel tasks
+     * @param task the (blocking) task to apply to every item
+     * @param <T> type of the items
+     * @param <R> type of the task results
+     *
+     * @return the results of all tasks, in completion order
+     */
+    public <T, R> List<R> invokeAll(Collection<T> items, int concurrency, Function<T, R> task) {
+        final List<R> results = Collections.synchronizedList(new ArrayList<>(items.size()));
+        final Iterator<T> iterator = items.iterator();
+        final int workers = Math.max(1, Math.min(concurrency, items.size()));
+
+        // no need to bother the pool for a single worker
+        if (workers == 1) {
+            iterator.forEachRemaining(item -> results.add(task.apply(item)));
+            return results;
+        }
+
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> {
+                T item;
+                while ((item = next(iterator)) != null) {
+                    results.add(task.apply(item));
+                }
+            }, executor);
+        }
+
+        try {
+            CompletableFuture.allOf(futures).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static ExecutorService newThreadPool(int threads) {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new SenderThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static <T> T next(Iterator<T> iterator) {
+        synchronized (iterator) {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static class SenderThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "push-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -17,19 +17,34 @@
 package org.jboss.aerogear.unifiedpush.message.sender;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
 import javax.ws.rs.core.Response.Status;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.api.VariantType;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
@@ -39,6 +54,45 @@ public class SimplePushNotificationSender implements PushNotificationSender {
 
     private final Logger logger = LoggerFactory.getLogger(SimplePushNotificationSender.class);
 
+    private static final int TIMEOUT_MILLIS = 10000;
+    private static final ContentType CONTENT_TYPE = ContentType.create("application/x-www-form-urlencoded", StandardCharsets.UTF_8);
+
+    @Inject
+    private ClientInstallationAsyncService clientInstallationAsyncService;
+
+    @Inject
+    private SenderExecutor senderExecutor;
+
+    @Autowired
+    @Qualifier(VariantType.SIMPLEPUSHQ)
+    private SenderConfiguration configuration;
+
+    private CloseableHttpClient httpClient;
+
+    @PostConstruct
+    public void initialize() {
+        // connections to the SimplePush server are kept alive and shared by all batches
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(configuration.concurrency());
+        connectionManager.setMaxTotal(Math.max(connectionManager.getMaxTotal(), configuration.concurrency()));
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(TIMEOUT_MILLIS)
+                        .setSocketTimeout(TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(TIMEOUT_MILLIS)
+                        .build())
+                .build();
+    }
+
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
     /*
      * Sends SimplePush notifications to all connected clients, that are represented by
      * the {@link Collection} of channelIDs, for the given SimplePush network.
@@ -51,44 +105,43 @@ public class SimplePushNotificationSender implements PushNotificationSender {
             return;
         }
 
-        String payload = pushMessage.getMessage().getSimplePush();
+        String simplePush = pushMessage.getMessage().getSimplePush();
         // if there was no payload provided, but we have clients, we send an empty string
         // the SimplePush Server accepts that and will use the timestamp
-        if (payload == null) {
-            payload = "";
-        }
-
-        // iterate over all the given channels, if there are channels:
-        boolean hasWarning = false;
-        for (String clientURL : tokens) {
+        final String payload = simplePush == null ? "" : simplePush;
+        logger.trace("Sending out SimplePush payload: {}", payload);
 
-            HttpURLConnection conn = null;
+        // PUT the version payload to all the given channels, at most 'concurrency' at a time
+        final Set<String> unknownClientURLs = ConcurrentHashMap.newKeySet();
+        final List<Integer> statusCodes = senderExecutor.invokeAll(tokens, configuration.concurrency(), clientURL -> {
             try {
-                // PUT the version payload to the SimplePushServer
-                logger.trace("Sending out SimplePush payload: {}", payload);
-                conn = put(clientURL, payload);
-                int simplePushStatusCode = conn.getResponseCode();
+                final int simplePushStatusCode = put(clientURL, payload);
                 logger.trace("SimplePush Status: {}", simplePushStatusCode);
 
-                if (Status.OK.getStatusCode() != simplePushStatusCode) {
-                    hasWarning = true;
+                if (simplePushStatusCode == Status.NOT_FOUND.getStatusCode() || simplePushStatusCode == Status.GONE.getStatusCode()) {
+                    unknownClientURLs.add(clientURL);
                 }
+                return simplePushStatusCode;
             } catch (Exception e) {
                 // any error while performing the PUT
                 logger.error("Error delivering SimplePush payload", e);
-                hasWarning = true;
-            } finally {
-                // tear down
-                if (conn != null) {
-                    conn.disconnect();
-                }
+                return -1;
             }
+        });
+
+        logger.info(String.format("Sent push notification to SimplePush Server for %d  tokens", tokens.size()));
+
+        if (!unknownClientURLs.isEmpty()) {
+            logger.info(String.format("Deleting '%d' unknown SimplePush installations", unknownClientURLs.size()));
+            clientInstallationAsyncService.removeInstallationsForVariantByDeviceTokens(variant.getVariantID(), unknownClientURLs);
         }
 
-        logger.info(String.format("Sent push notification to SimplePush Server for %d  tokens",tokens.size()));
+        final long failures = statusCodes.stream()
+                .filter(statusCode -> statusCode != Status.OK.getStatusCode())
+                .count() - unknownClientURLs.size();
 
-        if (hasWarning) {
-            callback.onError("Error delivering SimplePush payload");
+        if (failures > 0) {
+            callback.onError(String.format("Error delivering SimplePush payload to %d of %d endpoints", failures, tokens.size()));
         }
         else {
             callback.onSuccess();
@@ -96,34 +149,22 @@ public class SimplePushNotificationSender implements PushNotificationSender {
     }
 
     /*
-     * Returns HttpURLConnection that 'puts' the given body to the given URL.
+     * 'puts' the given body to the given URL and returns the HTTP status code.
      */
-    protected HttpURLConnection put(String url, String body) throws IOException {
+    int put(String url, String body) throws IOException {
 
         if (url == null) {
             throw new IllegalArgumentException("SimplePush Update URL cannot be null");
         }
 
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        HttpURLConnection conn = getConnection(url);
-        conn.setDoOutput(true);
-        conn.setUseCaches(false);
-        conn.setFixedLengthStreamingMode(bytes.length);
-        conn.setRequestProperty("Content-Length", Integer.toString(bytes.length));
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        conn.setRequestProperty("Accept", "*/*");
-        conn.setRequestMethod("PUT");
-        try (OutputStream out = conn.getOutputStream()) {
-            out.write(bytes);
-            out.flush();
-        }
-        return conn;
-    }
+        final HttpPut put = new HttpPut(url);
+        put.setEntity(new StringEntity(body, CONTENT_TYPE));
+        put.setHeader("Accept", "*/*");
 
-    /*
-     * Convenience method to open/establish a HttpURLConnection.
-     */
-    protected HttpURLConnection getConnection(String url) throws IOException {
-        return (HttpURLConnection) new URL(url).openConnection();
+        try (CloseableHttpResponse response = httpClient.execute(put)) {
+            // fully read the response, so the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
+            return response.getStatusLine().getStatusCode();
+        }
     }
 }
@@ -16,15 +16,14 @@
  */
 package org.jboss.aerogear.unifiedpush.message.sender;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.ws.rs.core.UriBuilder;
@@ -35,10 +34,13 @@ import org.jboss.aerogear.unifiedpush.api.WindowsWNSVariant;
 import org.jboss.aerogear.unifiedpush.message.InternalUnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.Message;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.cache.WnsServiceCache;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
 import org.jboss.aerogear.unifiedpush.message.windows.Windows;
 import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
@@ -55,6 +57,8 @@ import ar.com.fernandospr.wns.model.builders.WnsBadgeBuilder;
 import ar.com.fernandospr.wns.model.builders.WnsRawBuilder;
 import ar.com.fernandospr.wns.model.builders.WnsTileBuilder;
 import ar.com.fernandospr.wns.model.builders.WnsToastBuilder;
+import net.jodah.expiringmap.ExpirationPolicy;
+import net.jodah.expiringmap.ExpiringMap;
 
 @Service
 @Qualifier(value = VariantType.WINDOWSWNSQ)
@@ -64,77 +68,131 @@ public class WNSPushNotificationSender implements PushNotificationSender {
 
     private static final String CORDOVA = "cordova";
     static final String CORDOVA_PAGE = "/Plugins/aerogear-cordova-push/P.xaml";
-    private String pushMessageInformationId;
 
     @Inject
     private ClientInstallationAsyncService clientInstallationAsyncService;
 
+    @Inject
+    private WnsServiceCache wnsServiceCache;
+
+    @Inject
+    private SenderExecutor senderExecutor;
+
+    @Autowired
+    @Qualifier(VariantType.WINDOWSWNSQ)
+    private SenderConfiguration configuration;
+
+    // payloads of the messages currently being delivered, one message is sent in many batches
+    private final ConcurrentMap<String, WnsPush> pushes = ExpiringMap.builder()
+            .expiration(10, TimeUnit.MINUTES)
+            .expirationPolicy(ExpirationPolicy.ACCESSED)
+            .build();
+
     @Override
     public void sendPushMessage(Variant variant, Collection<String> clientIdentifiers, UnifiedPushMessage pushMessage, String pushMessageInformationId, NotificationSenderCallback senderCallback) {
-        setPushMessageInformationId(pushMessageInformationId);
-
         // no need to send empty list
         if (clientIdentifiers.isEmpty()) {
             return;
         }
 
         final WindowsWNSVariant windowsVariant = (WindowsWNSVariant) variant;
-        WnsService wnsService = new WnsService(windowsVariant.getSid(), windowsVariant.getClientSecret(), false);
+        final WnsService wnsService = wnsServiceCache.getServiceForVariant(windowsVariant,
+                () -> new WnsService(windowsVariant.getSid(), windowsVariant.getClientSecret(), false));
 
-        Set<String> expiredClientIdentifiers = new HashSet<>(clientIdentifiers.size());
-        ArrayList<String> channelUris = new ArrayList<>(clientIdentifiers);
-        Message message = pushMessage.getMessage();
         try {
-            WnsNotificationRequestOptional optional = new WnsNotificationRequestOptional();
-            int ttl = pushMessage.getConfig().getTimeToLive();
-            if (ttl != -1) {
-                optional.ttl = String.valueOf(ttl);
-            }
+            // the payload is the same for all channels and all batches of the message, messages without id are not cached
+            final WnsPush push = pushMessageInformationId == null
+                    ? createPush(pushMessage, null)
+                    : pushes.computeIfAbsent(pushMessageInformationId, id -> createPush(pushMessage, id));
 
-            final List<WnsNotificationResponse> responses;
-            if (message.getWindows().getType() != null) {
-                switch (message.getWindows().getType()) {
-                    case toast:
-                        responses = wnsService.pushToast(channelUris, optional, createToastMessage(message));
-                        break;
-                    case badge:
-                        responses = wnsService.pushBadge(channelUris, optional, createBadgeMessage(message));
-                        break;
-                    case raw:
-                        responses = wnsService.pushRaw(channelUris, optional, createRawMessage(message));
-                        break;
-                    case tile:
-                        responses = wnsService.pushTile(channelUris, optional, createTileMessage(message));
-                        break;
-                    default:
-                        throw new IllegalArgumentException("unknown type: " + message.getWindows().getType());
+            final List<WnsNotificationResponse> responses = senderExecutor.invokeAll(clientIdentifiers, configuration.concurrency(), channelUri -> {
+                try {
+                    return push.send(wnsService, channelUri);
+                } catch (WnsException e) {
+                    logger.debug("Failed to send WNS notification to channel {}", channelUri, e);
+                    return null;
                 }
-            } else {
-                responses = wnsService.pushToast(channelUris, optional, createSimpleToastMessage(message));
-            }
+            });
 
-            logger.info(String.format("Sent push notification to WNS for %d  tokens", channelUris.size()));
+            logger.info(String.format("Sent push notification to WNS for %d  tokens", clientIdentifiers.size()));
+
+            final Set<String> expiredClientIdentifiers = new HashSet<>();
+            int failures = 0;
+            for (WnsNotificationResponse response : responses) {
+                if (response == null) {
+                    failures++;
+                } else if (response.code == 410) {
+                    expiredClientIdentifiers.add(response.channelUri);
+                } else if (response.code != 200) {
+                    failures++;
+                    if (response.code == 401) {
+                        // access token got rejected, next batch has to start with a fresh service
+                        wnsServiceCache.evict(windowsVariant);
+                    }
+                }
+            }
 
-            expiredClientIdentifiers.addAll(responses.stream().filter(response -> response.code == 410).map(response -> response.channelUri).collect(Collectors.toList()));
             if (!expiredClientIdentifiers.isEmpty()) {
                 logger.info(String.format("Deleting '%d' expired WNS installations", expiredClientIdentifiers.size()));
                 clientInstallationAsyncService.removeInstallationsForVariantByDeviceTokens(variant.getVariantID(), expiredClientIdentifiers);
             }
+
+            if (failures > 0) {
+                senderCallback.onError(String.format("Unable to submit notification to WNS for %d of %d channels",
+                        failures, clientIdentifiers.size()));
+                return;
+            }
             logger.debug("Message to WNS has been submitted");
             senderCallback.onSuccess();
-        } catch (WnsException | IllegalArgumentException exception) {
+        } catch (IllegalArgumentException exception) {
             senderCallback.onError(exception.getMessage());
         }
     }
 
-    WnsToast createToastMessage(Message message) {
+    private WnsPush createPush(UnifiedPushMessage pushMessage, String pushMessageInformationId) {
+        WnsNotificationRequestOptional optional = new WnsNotificationRequestOptional();
+        int ttl = pushMessage.getConfig().getTimeToLive();
+        if (ttl != -1) {
+            optional.ttl = String.valueOf(ttl);
+        }
+        return createPush(pushMessage.getMessage(), optional, pushMessageInformationId);
+    }
+
+    /**
+     * Builds the payload of the given message once and returns the push operation for a single channel.
+     */
+    WnsPush createPush(Message message, WnsNotificationRequestOptional optional, String pushMessageInformationId) {
+        if (message.getWindows().getType() == null) {
+            final WnsToast toast = createSimpleToastMessage(message, pushMessageInformationId);
+            return (wnsService, channelUri) -> wnsService.pushToast(channelUri, optional, toast);
+        }
+
+        switch (message.getWindows().getType()) {
+            case toast:
+                final WnsToast toast = createToastMessage(message, pushMessageInformationId);
+                return (wnsService, channelUri) -> wnsService.pushToast(channelUri, optional, toast);
+            case badge:
+                final WnsBadge badge = createBadgeMessage(message);
+                return (wnsService, channelUri) -> wnsService.pushBadge(channelUri, optional, badge);
+            case raw:
+                final WnsRaw raw = createRawMessage(message);
+                return (wnsService, channelUri) -> wnsService.pushRaw(channelUri, optional, raw);
+            case tile:
+                final WnsTile tile = createTileMessage(message);
+                return (wnsService, channelUri) -> wnsService.pushTile(channelUri, optional, tile);
+            default:
+                throw new IllegalArgumentException("unknown type: " + message.getWindows().getType());
+        }
+    }
+
+    WnsToast createToastMessage(Message message, String pushMessageInformationId) {
         final WnsToastBuilder builder = new WnsToastBuilder();
         Windows windows = message.getWindows();
         if (windows.getDuration() != null) {
             builder.duration(windows.getDuration().toString());
         }
         builder.audioSrc(message.getSound());
-        builder.launch(createLaunchParam(message.getWindows().getPage(), message.getAlert(), message.getUserData(), getPushMessageInformationId()));
+        builder.launch(createLaunchParam(message.getWindows().getPage(), message.getAlert(), message.getUserData(), pushMessageInformationId));
         createMessage(message, windows.getToastType().toString(), builder);
         return builder.build();
     }
@@ -168,45 +226,16 @@ public class WNSPushNotificationSender implements PushNotificationSender {
         param.add(message.getAlert());
         param.addAll(windows.getTextFields());
 
-        createTemplate(builder, type, param);
-    }
-
-    private static void createTemplate(WnsAbstractBuilder builder, String type, List<String> param) {
-        try {
-            Method[] methods = builder.getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals("bindingTemplate" + type)) {
-                    int methodArgs = method.getParameterTypes().length;
-                    if (methodArgs == param.size()) {
-                        method.invoke(builder, (Object[]) param.toArray(new String[param.size()]));
-                    } else {
-                        throw new IllegalArgumentException("this template needs " + methodArgs
-                                + " fields, but you specified " + param.size());
-                    }
-                }
-            }
-        } catch (InvocationTargetException e) {
-            throw new RuntimeException("error thrown while invoking template build method: " + type, e);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException("something wrong with the permissions of this method", e);
-        }
+        WnsTemplates.apply(builder, type, param);
     }
 
-    WnsToast createSimpleToastMessage(Message message) {
+    WnsToast createSimpleToastMessage(Message message, String pushMessageInformationId) {
         final WnsToastBuilder builder = new WnsToastBuilder().bindingTemplateToastText01(message.getAlert());
         final Map<String, Object> data = message.getUserData();
-        builder.launch(createLaunchParam(message.getWindows().getPage(), message.getAlert(), data, getPushMessageInformationId()));
+        builder.launch(createLaunchParam(message.getWindows().getPage(), message.getAlert(), data, pushMessageInformationId));
         return builder.build();
     }
 
-    public String getPushMessageInformationId() {
-        return pushMessageInformationId;
-    }
-
-    public void setPushMessageInformationId(String pushMessageInformationId) {
-        this.pushMessageInformationId = pushMessageInformationId;
-    }
-
     static String createLaunchParam(String page, String message, Map<String, Object> data, String pushMessageInformationId) {
         final UriBuilder uriBuilder = UriBuilder.fromPath("");
 
@@ -215,8 +244,18 @@ public class WNSPushNotificationSender implements PushNotificationSender {
             uriBuilder.queryParam("message", message);
         }
         //add aerogear-push-id
-        uriBuilder.queryParam(InternalUnifiedPushMessage.PUSH_MESSAGE_ID, pushMessageInformationId);
+        if (pushMessageInformationId != null) {
+            uriBuilder.queryParam(InternalUnifiedPushMessage.PUSH_MESSAGE_ID, pushMessageInformationId);
+        }
         final String query = uriBuilder.build().getQuery();
         return (CORDOVA.equals(page) ? CORDOVA_PAGE : page) + (query != null ? ("?" + query) : "");
     }
+
+    /**
+     * Sends an already built notification to a single WNS channel.
+     */
+    @FunctionalInterface
+    interface WnsPush {
+        WnsNotificationResponse send(WnsService wnsService, String channelUri) throws WnsException;
+    }
 }
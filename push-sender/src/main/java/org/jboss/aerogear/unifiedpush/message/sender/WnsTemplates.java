@@ -0,0 +1,148 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ar.com.fernandospr.wns.model.builders.WnsAbstractBuilder;
+import ar.com.fernandospr.wns.model.builders.WnsTileBuilder;
+import ar.com.fernandospr.wns.model.builders.WnsToastBuilder;
+
+/**
+ * Registry of the <code>bindingTemplate*</code> methods of the WNS toast and tile builders.
+ *
+ * The builders offer one method per template, taking one <code>String</code> per image and text field.
+ * The methods are resolved once, when the class is loaded, into {@link MethodHandle}s keyed by
+ * builder class, template name and arity, so applying a template is a map lookup and a direct call.
+ */
+final class WnsTemplates {
+
+    private static final String TEMPLATE_PREFIX = "bindingTemplate";
+    private static final MethodType TEMPLATE_TYPE = MethodType.methodType(void.class, WnsAbstractBuilder.class, String[].class);
+
+    private static final Map<TemplateKey, MethodHandle> TEMPLATES;
+    // template arity by builder class and template name, to report calls with the wrong number of fields
+    private static final Map<TemplateKey, Integer> ARITIES;
+
+    static {
+        final Map<TemplateKey, MethodHandle> templates = new HashMap<>();
+        final Map<TemplateKey, Integer> arities = new HashMap<>();
+        for (Class<? extends WnsAbstractBuilder> builderClass : Arrays.asList(WnsToastBuilder.class, WnsTileBuilder.class)) {
+            register(builderClass, templates, arities);
+        }
+        TEMPLATES = Collections.unmodifiableMap(templates);
+        ARITIES = Collections.unmodifiableMap(arities);
+    }
+
+    private WnsTemplates() {
+        // no-op
+    }
+
+    /**
+     * Applies the given template to the builder.
+     *
+     * @param builder the toast or tile builder
+     * @param type the template name, e.g. <code>ToastImageAndText04</code>
+     * @param param the images, followed by the text fields of the template
+     *
+     * @throws IllegalArgumentException if the template does not take the given number of fields
+     */
+    static void apply(WnsAbstractBuilder builder, String type, List<String> param) {
+        final String name = TEMPLATE_PREFIX + type;
+        final MethodHandle template = TEMPLATES.get(new TemplateKey(builder.getClass(), name, param.size()));
+
+        if (template == null) {
+            final Integer arity = ARITIES.get(new TemplateKey(builder.getClass(), name, -1));
+            if (arity != null) {
+                throw new IllegalArgumentException("this template needs " + arity
+                        + " fields, but you specified " + param.size());
+            }
+            return;
+        }
+
+        try {
+            template.invokeExact(builder, param.toArray(new String[param.size()]));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("error thrown while invoking template build method: " + type, e);
+        }
+    }
+
+    private static void register(Class<? extends WnsAbstractBuilder> builderClass,
+                                 Map<TemplateKey, MethodHandle> templates, Map<TemplateKey, Integer> arities) {
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (Method method : builderClass.getMethods()) {
+            if (!method.getName().startsWith(TEMPLATE_PREFIX) || !onlyStrings(method.getParameterTypes())) {
+                continue;
+            }
+
+            final int arity = method.getParameterCount();
+            try {
+                final MethodHandle handle = lookup.unreflect(method)
+                        .asSpreader(String[].class, arity)
+                        .asType(TEMPLATE_TYPE);
+                templates.put(new TemplateKey(builderClass, method.getName(), arity), handle);
+                arities.put(new TemplateKey(builderClass, method.getName(), -1), arity);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("something wrong with the permissions of this method", e);
+            }
+        }
+    }
+
+    private static boolean onlyStrings(Class<?>[] parameterTypes) {
+        return Arrays.stream(parameterTypes).allMatch(String.class::equals);
+    }
+
+    private static final class TemplateKey {
+        private final Class<?> builderClass;
+        private final String name;
+        private final int arity;
+
+        TemplateKey(Class<?> builderClass, String name, int arity) {
+            this.builderClass = builderClass;
+            this.name = name;
+            this.arity = arity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final TemplateKey that = (TemplateKey) o;
+            return arity == that.arity && builderClass == that.builderClass && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(builderClass, name, arity);
+        }
+    }
+}
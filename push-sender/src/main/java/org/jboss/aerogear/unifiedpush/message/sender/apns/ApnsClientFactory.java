@@ -0,0 +1,154 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender.apns;
+
+import static org.jboss.aerogear.unifiedpush.message.sender.apns.PushyApnsSender.CUSTOM_AEROGEAR_APNS_PUSH_HOST;
+import static org.jboss.aerogear.unifiedpush.message.sender.apns.PushyApnsSender.CUSTOM_AEROGEAR_APNS_PUSH_PORT;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.jboss.aerogear.unifiedpush.api.iOSVariant;
+import org.jboss.aerogear.unifiedpush.service.proxy.ProxyConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.turo.pushy.apns.ApnsClient;
+import com.turo.pushy.apns.ApnsClientBuilder;
+import com.turo.pushy.apns.auth.ApnsSigningKey;
+import com.turo.pushy.apns.proxy.HttpProxyHandlerFactory;
+import com.turo.pushy.apns.proxy.Socks5ProxyHandlerFactory;
+
+import io.netty.util.concurrent.Future;
+
+/**
+ * Builds APNs clients for iOS variants and connects them to the APNs gateway.
+ */
+@Service
+public class ApnsClientFactory {
+
+    private final Logger logger = LoggerFactory.getLogger(ApnsClientFactory.class);
+
+    private static final String customAerogearApnsPushHost = tryGetProperty(CUSTOM_AEROGEAR_APNS_PUSH_HOST);
+    private static final Integer customAerogearApnsPushPort = tryGetIntegerProperty(CUSTOM_AEROGEAR_APNS_PUSH_PORT);
+
+    /**
+     * Builds a client for the given variant and waits until it is connected.
+     *
+     * @param iOSVariant the variant
+     * @return the client, connected unless the connection attempt failed
+     * @throws IllegalArgumentException if the credentials of the variant are incomplete or invalid
+     */
+    public ApnsClient connect(final iOSVariant iOSVariant) {
+        final ApnsClient apnsClient = buildApnsClient(iOSVariant);
+
+        // connect and wait:
+        logger.debug("establishing the connection for {}", iOSVariant.getVariantID());
+        connectToDestinations(iOSVariant, apnsClient);
+
+        // APNS client has auto-reconnect, but let's log when that happens
+        apnsClient.getReconnectionFuture().addListener(future -> logger.trace("Reconnecting to APNs"));
+        return apnsClient;
+    }
+
+    private ApnsClient buildApnsClient(final iOSVariant iOSVariant) {
+
+        // this check should not be needed, but you never know:
+        if (iOSVariant.isCredentialsProvided()) {
+
+            try {
+                final ApnsClientBuilder builder = new ApnsClientBuilder();
+
+                if (iOSVariant.isTokenBasedAuthentication()) {
+                    // add the signing key, the client signs its JWT authentication tokens with:
+                    try (InputStream stream = new ByteArrayInputStream(iOSVariant.getPrivateKey().getBytes(StandardCharsets.UTF_8))) {
+                        builder.setSigningKey(ApnsSigningKey.loadFromInputStream(stream, iOSVariant.getTeamId(), iOSVariant.getKeyId()));
+                    }
+                } else {
+                    // add the certificate:
+                    try (InputStream stream = new ByteArrayInputStream(iOSVariant.getCertificate())) {
+                        builder.setClientCredentials(stream, iOSVariant.getPassphrase());
+                    }
+                }
+
+                if (ProxyConfiguration.hasHttpProxyConfig()) {
+                    if (ProxyConfiguration.hasBasicAuth()) {
+                        String user =  ProxyConfiguration.getProxyUser();
+                        String pass = ProxyConfiguration.getProxyPass();
+                        builder.setProxyHandlerFactory(new HttpProxyHandlerFactory(ProxyConfiguration.proxyAddress(), user, pass));
+                    } else {
+                        builder.setProxyHandlerFactory(new HttpProxyHandlerFactory(ProxyConfiguration.proxyAddress()));
+                    }
+
+                } else if (ProxyConfiguration.hasSocksProxyConfig()) {
+                    builder.setProxyHandlerFactory(new Socks5ProxyHandlerFactory(ProxyConfiguration.socks()));
+                }
+
+                return builder.build();
+            } catch (Exception e) {
+                logger.error("Error reading certificate or signing key", e);
+                // will be thrown below
+            }
+        }
+        // indicating an incomplete service
+        throw new IllegalArgumentException("Not able to construct APNS client");
+    }
+
+
+
+    // not synchronized, connections of different keys handshake concurrently; SimpleApnsClientCache serializes
+    // the connects of one key
+    private void connectToDestinations(final iOSVariant iOSVariant, final ApnsClient apnsClient) {
+
+        String apnsHost;
+        int apnsPort = ApnsClient.DEFAULT_APNS_PORT;
+
+        // are we production or development ?
+        if (iOSVariant.isProduction()) {
+            apnsHost = ApnsClient.PRODUCTION_APNS_HOST;
+        } else {
+            apnsHost = ApnsClient.DEVELOPMENT_APNS_HOST;
+        }
+
+        //Or is there even a custom ost&port provided by a system property, for tests ?
+        if(customAerogearApnsPushHost != null){
+            apnsHost = customAerogearApnsPushHost;
+
+            if(customAerogearApnsPushPort != null) {
+                apnsPort = customAerogearApnsPushPort;
+            }
+        }
+
+        // Once we've created a client, we can connect it to the APNs gateway.
+        // Note that this process is asynchronous; we'll get a Future right
+        // away, but we'll need to wait for it to complete before we can send
+        // any notifications. Note that this is a Netty Future, which is an
+        // extension of the Java Future interface that allows callers to add
+        // listeners and adds methods for checking the status of the Future.
+        logger.debug("connecting to APNs");
+        final Future<Void> connectFuture = apnsClient.connect(apnsHost, apnsPort);
+        try {
+            connectFuture.await();
+        } catch (InterruptedException e) {
+            logger.error("Error connecting to APNs", e);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender.apns;
+
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.turo.pushy.apns.PushNotificationResponse;
+import com.turo.pushy.apns.util.SimpleApnsPushNotification;
+
+import io.netty.util.concurrent.Future;
+
+/**
+ * Processes the APNs responses outside of the Netty event loop.
+ *
+ * Response listeners run on the event loop, which serves all HTTP/2 streams of the APNs connections. They only count
+ * accepted responses and hand rejected ones over to a bounded queue. A single worker drains the queue, counts the
+ * rejection reasons per variant and removes invalidated device tokens in bulk. When the queue is full, rejections
+ * are dropped (and counted) rather than blocking the event loop.
+ */
+@Service
+public class ApnsResponseHandler {
+
+    public static final String APNS_RESPONSE_QUEUE_SIZE = "aerogear.ios.responseQueueSize";
+    private static final int DEFAULT_QUEUE_SIZE = 64 * 1024;
+    private static final int REMOVAL_BATCH_SIZE = 1000;
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+    private static final String UNKNOWN_REASON = "Unknown";
+
+    private final Logger logger = LoggerFactory.getLogger(ApnsResponseHandler.class);
+
+    @Inject
+    private ClientInstallationAsyncService clientInstallationAsyncService;
+
+    private final BlockingQueue<Rejection> rejections =
+            new ArrayBlockingQueue<>(tryGetIntegerProperty(APNS_RESPONSE_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+    private final ConcurrentMap<String, ApnsVariantStatistics> statistics = new ConcurrentHashMap<>();
+
+    private final Thread worker = new Thread(this::processRejections, "apns-response-handler");
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the worker once the queued rejections are processed and their invalid tokens removed.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        try {
+            worker.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param variantID the iOS variant
+     * @return the response counters of the variant, to be looked up once per batch
+     */
+    public ApnsVariantStatistics statisticsFor(String variantID) {
+        return statistics.computeIfAbsent(variantID, ApnsVariantStatistics::new);
+    }
+
+    /**
+     * @return the response counters of all variants which sent notifications since startup
+     */
+    public Map<String, ApnsVariantStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    /**
+     * Handles the completed send future of a notification. Invoked on the Netty event loop, so it must not block.
+     *
+     * @param variantStatistics counters of the variant the notification was sent for
+     * @param future the completed send future
+     */
+    public void onResponse(ApnsVariantStatistics variantStatistics, Future<PushNotificationResponse<SimpleApnsPushNotification>> future) {
+        if (!future.isSuccess()) {
+            variantStatistics.failed();
+            return;
+        }
+
+        final PushNotificationResponse<SimpleApnsPushNotification> response = future.getNow();
+        if (response.isAccepted()) {
+            variantStatistics.accepted();
+        } else if (!rejections.offer(new Rejection(variantStatistics, response))) {
+            variantStatistics.dropped();
+        }
+    }
+
+    private void processRejections() {
+        // invalid tokens by variant, removed in bulk once enough were collected or the queue ran empty
+        final Map<String, Set<String>> invalidTokens = new HashMap<>();
+        int pending = 0;
+
+        while (running) {
+            try {
+                final Rejection rejection = rejections.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (rejection != null && handle(rejection, invalidTokens)) {
+                    pending++;
+                }
+
+                if (pending >= REMOVAL_BATCH_SIZE || (rejection == null && pending > 0)) {
+                    removeInvalidTokens(invalidTokens);
+                    pending = 0;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Error while processing APNs responses", e);
+            }
+        }
+
+        // rejections queued before stopping are not lost
+        try {
+            Rejection rejection;
+            while ((rejection = rejections.poll()) != null) {
+                handle(rejection, invalidTokens);
+            }
+            removeInvalidTokens(invalidTokens);
+        } catch (RuntimeException e) {
+            logger.error("Error while processing APNs responses", e);
+        }
+    }
+
+    /*
+     * Counts the rejection and returns true, if the device token has to be removed.
+     */
+    private boolean handle(Rejection rejection, Map<String, Set<String>> invalidTokens) {
+        final PushNotificationResponse<SimpleApnsPushNotification> response = rejection.response;
+        final String rejectReason = response.getRejectionReason();
+        rejection.variantStatistics.rejected(rejectReason != null ? rejectReason : UNKNOWN_REASON);
+
+        // token is either invalid, or did just expire
+        if ((response.getTokenInvalidationTimestamp() != null) || ("BadDeviceToken".equals(rejectReason))) {
+            return invalidTokens.computeIfAbsent(rejection.variantStatistics.getVariantID(), variantID -> new HashSet<>())
+                    .add(response.getPushNotification().getToken());
+        }
+        return false;
+    }
+
+    private void removeInvalidTokens(Map<String, Set<String>> invalidTokens) {
+        invalidTokens.forEach((variantID, tokens) -> {
+            logger.info("Removing {} invalid tokens of iOS variant {}", tokens.size(), variantID);
+            clientInstallationAsyncService.removeInstallationsForVariantByDeviceTokens(variantID, tokens);
+        });
+        invalidTokens.clear();
+    }
+
+    private static final class Rejection {
+        private final ApnsVariantStatistics variantStatistics;
+        private final PushNotificationResponse<SimpleApnsPushNotification> response;
+
+        Rejection(ApnsVariantStatistics variantStatistics, PushNotificationResponse<SimpleApnsPushNotification> response) {
+            this.variantStatistics = variantStatistics;
+            this.response = response;
+        }
+    }
+}
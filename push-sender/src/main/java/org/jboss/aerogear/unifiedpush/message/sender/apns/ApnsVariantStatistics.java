@@ -0,0 +1,89 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender.apns;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counters of the APNs responses received for one iOS variant.
+ */
+public class ApnsVariantStatistics {
+
+    private final String variantID;
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final ConcurrentMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+    ApnsVariantStatistics(String variantID) {
+        this.variantID = variantID;
+    }
+
+    public String getVariantID() {
+        return variantID;
+    }
+
+    /**
+     * @return number of notifications accepted by APNs
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return number of notifications which could not be written to APNs, e.g. because the connection was closed
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return number of rejections which were not processed, because the response queue was full
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of rejected notifications by rejection reason
+     */
+    public Map<String, Long> getRejections() {
+        return Collections.unmodifiableMap(rejections.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum())));
+    }
+
+    void accepted() {
+        accepted.increment();
+    }
+
+    void failed() {
+        failed.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    void rejected(String reason) {
+        rejections.computeIfAbsent(reason, r -> new LongAdder()).increment();
+    }
+}
@@ -16,13 +16,8 @@
  */
 package org.jboss.aerogear.unifiedpush.message.sender.apns;
 
-import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
-import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
-
-import java.io.ByteArrayInputStream;
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListSet;
 
 import javax.inject.Inject;
 
@@ -34,20 +29,17 @@ import org.jboss.aerogear.unifiedpush.message.InternalUnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.Message;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.apns.APNs;
+import org.jboss.aerogear.unifiedpush.message.exception.PushNetworkUnreachableException;
 import org.jboss.aerogear.unifiedpush.message.cache.SimpleApnsClientCache;
 import org.jboss.aerogear.unifiedpush.message.sender.NotificationSenderCallback;
 import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
-import org.jboss.aerogear.unifiedpush.service.proxy.ProxyConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import com.turo.pushy.apns.ApnsClient;
-import com.turo.pushy.apns.ApnsClientBuilder;
 import com.turo.pushy.apns.PushNotificationResponse;
-import com.turo.pushy.apns.proxy.HttpProxyHandlerFactory;
-import com.turo.pushy.apns.proxy.Socks5ProxyHandlerFactory;
 import com.turo.pushy.apns.util.ApnsPayloadBuilder;
 import com.turo.pushy.apns.util.SimpleApnsPushNotification;
 
@@ -62,14 +54,14 @@ public class PushyApnsSender implements PushNotificationSender {
 
     public static final String CUSTOM_AEROGEAR_APNS_PUSH_HOST = "custom.aerogear.apns.push.host";
     public static final String CUSTOM_AEROGEAR_APNS_PUSH_PORT = "custom.aerogear.apns.push.port";
-    private static final String customAerogearApnsPushHost = tryGetProperty(CUSTOM_AEROGEAR_APNS_PUSH_HOST);
-    private static final Integer customAerogearApnsPushPort = tryGetIntegerProperty(CUSTOM_AEROGEAR_APNS_PUSH_PORT);
-
-    private final ConcurrentSkipListSet<String> invalidTokens = new ConcurrentSkipListSet<>();
 
     @Inject
     private SimpleApnsClientCache simpleApnsClientCache;
     @Inject
+    private ApnsResponseHandler apnsResponseHandler;
+    @Inject
+    private ApnsClientFactory apnsClientFactory;
+    @Inject
     private WorkQueueProcessor<iOSVariantUpdateEvent> variantUpdateEventEvent;
 
     @Override
@@ -108,45 +100,27 @@ public class PushyApnsSender implements PushNotificationSender {
             // we have managed to connect and will send tokens ;-)
             senderCallback.onSuccess();
 
-            final String defaultApnsTopic = ApnsUtil.readDefaultTopic(iOSVariant.getCertificate(), iOSVariant.getPassphrase().toCharArray());
+            // token based connections are shared by the variants of a team, the topic is set per notification
+            final String defaultApnsTopic = iOSVariant.isTokenBasedAuthentication()
+                    ? iOSVariant.getBundleId()
+                    : ApnsUtil.readDefaultTopic(iOSVariant.getCertificate(), iOSVariant.getPassphrase().toCharArray());
             logger.debug("sending payload for all tokens for {} to APNs ({})", iOSVariant.getVariantID(), defaultApnsTopic);
 
 
+            // responses complete on the Netty event loop, the handler takes them over to its own worker
+            final ApnsVariantStatistics statistics = apnsResponseHandler.statisticsFor(iOSVariant.getVariantID());
             tokens.forEach(token -> {
                 final SimpleApnsPushNotification pushNotification = new SimpleApnsPushNotification(token, defaultApnsTopic, payload);
                 final Future<PushNotificationResponse<SimpleApnsPushNotification>> notificationSendFuture = apnsClient.sendNotification(pushNotification);
 
-                notificationSendFuture.addListener(future -> {
-
-                    if (future.isSuccess()) {
-                        handlePushNotificationResponsePerToken(notificationSendFuture.get());
-                    }
-                });
+                notificationSendFuture.addListener(future -> apnsResponseHandler.onResponse(statistics, notificationSendFuture));
             });
 
         } else {
             logger.error("Unable to send notifications, client is not connected. Removing from cache pool");
-            senderCallback.onError("Unable to send notifications, client is not connected");
             variantUpdateEventEvent.onNext(new iOSVariantUpdateEvent(iOSVariant));
-        }
-    }
-
-    private void handlePushNotificationResponsePerToken(final PushNotificationResponse<SimpleApnsPushNotification> pushNotificationResponse ) {
-
-        final String deviceToken = pushNotificationResponse.getPushNotification().getToken();
-
-        if (pushNotificationResponse.isAccepted()) {
-            logger.trace("Push notification for '{}' (payload={})", deviceToken, pushNotificationResponse.getPushNotification().getPayload());
-        } else {
-            final String rejectReason = pushNotificationResponse.getRejectionReason();
-            logger.trace("Push Message has been rejected with reason: {}", rejectReason);
-
-            // token is either invalid, or did just expire
-            if ((pushNotificationResponse.getTokenInvalidationTimestamp() != null) || ("BadDeviceToken".equals(rejectReason))) {
-                logger.info(rejectReason + ", removing token: " + deviceToken);
-
-                invalidTokens.add(deviceToken);
-            }
+            // nothing was sent, the dispatcher retries the batch with a new connection
+            throw new PushNetworkUnreachableException("Unable to send notifications, client is not connected");
         }
     }
 
@@ -180,94 +154,6 @@ public class PushyApnsSender implements PushNotificationSender {
     }
 
     private ApnsClient receiveApnsConnection(final iOSVariant iOSVariant) {
-        return simpleApnsClientCache.getApnsClientForVariant(iOSVariant, () -> {
-            final ApnsClient apnsClient = buildApnsClient(iOSVariant);
-
-            // connect and wait:
-            logger.debug("establishing the connection for {}", iOSVariant.getVariantID());
-            connectToDestinations(iOSVariant, apnsClient);
-
-            // APNS client has auto-reconnect, but let's log when that happens
-            apnsClient.getReconnectionFuture().addListener(future -> logger.trace("Reconnecting to APNs"));
-            return apnsClient;
-        });
-    }
-
-    private ApnsClient buildApnsClient(final iOSVariant iOSVariant) {
-
-        // this check should not be needed, but you never know:
-        if (iOSVariant.getCertificate() != null && iOSVariant.getPassphrase() != null) {
-
-            // add the certificate:
-            try {
-                final ByteArrayInputStream stream = new ByteArrayInputStream(iOSVariant.getCertificate());
-
-                final ApnsClientBuilder builder = new ApnsClientBuilder();
-                builder.setClientCredentials(stream, iOSVariant.getPassphrase());
-
-                if (ProxyConfiguration.hasHttpProxyConfig()) {
-                    if (ProxyConfiguration.hasBasicAuth()) {
-                        String user =  ProxyConfiguration.getProxyUser();
-                        String pass = ProxyConfiguration.getProxyPass();
-                        builder.setProxyHandlerFactory(new HttpProxyHandlerFactory(ProxyConfiguration.proxyAddress(), user, pass));
-                    } else {
-                        builder.setProxyHandlerFactory(new HttpProxyHandlerFactory(ProxyConfiguration.proxyAddress()));
-                    }
-
-                } else if (ProxyConfiguration.hasSocksProxyConfig()) {
-                    builder.setProxyHandlerFactory(new Socks5ProxyHandlerFactory(ProxyConfiguration.socks()));
-                }
-
-                final ApnsClient apnsClient = builder.build();
-
-                // release the stream
-                stream.close();
-
-                return apnsClient;
-            } catch (Exception e) {
-                logger.error("Error reading certificate", e);
-                // will be thrown below
-            }
-        }
-        // indicating an incomplete service
-        throw new IllegalArgumentException("Not able to construct APNS client");
-    }
-
-
-
-    private synchronized void connectToDestinations(final iOSVariant iOSVariant, final ApnsClient apnsClient) {
-
-        String apnsHost;
-        int apnsPort = ApnsClient.DEFAULT_APNS_PORT;
-
-        // are we production or development ?
-        if (iOSVariant.isProduction()) {
-            apnsHost = ApnsClient.PRODUCTION_APNS_HOST;
-        } else {
-            apnsHost = ApnsClient.DEVELOPMENT_APNS_HOST;
-        }
-
-        //Or is there even a custom ost&port provided by a system property, for tests ?
-        if(customAerogearApnsPushHost != null){
-            apnsHost = customAerogearApnsPushHost;
-
-            if(customAerogearApnsPushPort != null) {
-                apnsPort = customAerogearApnsPushPort;
-            }
-        }
-
-        // Once we've created a client, we can connect it to the APNs gateway.
-        // Note that this process is asynchronous; we'll get a Future right
-        // away, but we'll need to wait for it to complete before we can send
-        // any notifications. Note that this is a Netty Future, which is an
-        // extension of the Java Future interface that allows callers to add
-        // listeners and adds methods for checking the status of the Future.
-        logger.debug("connecting to APNs");
-        final Future<Void> connectFuture = apnsClient.connect(apnsHost, apnsPort);
-        try {
-            connectFuture.await();
-        } catch (InterruptedException e) {
-            logger.error("Error connecting to APNs", e);
-        }
+        return simpleApnsClientCache.getApnsClientForVariant(iOSVariant, () -> apnsClientFactory.connect(iOSVariant));
     }
 }
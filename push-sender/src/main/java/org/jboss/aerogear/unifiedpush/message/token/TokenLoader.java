@@ -16,6 +16,9 @@
  */
 package org.jboss.aerogear.unifiedpush.message.token;
 
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -29,7 +32,10 @@ import org.jboss.aerogear.unifiedpush.api.VariantType;
 import org.jboss.aerogear.unifiedpush.dao.ResultsStream;
 import org.jboss.aerogear.unifiedpush.message.Criteria;
 import org.jboss.aerogear.unifiedpush.message.InternalUnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.NotificationDispatcher;
 import org.jboss.aerogear.unifiedpush.message.NotificationRouter;
+import org.jboss.aerogear.unifiedpush.message.ParallelStage;
+import org.jboss.aerogear.unifiedpush.message.SenderRegistry;
 import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
 import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
 import org.jboss.aerogear.unifiedpush.message.event.AllBatchesLoadedEvent;
@@ -40,8 +46,6 @@ import org.jboss.aerogear.unifiedpush.service.ClientInstallationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -63,6 +67,8 @@ import reactor.core.publisher.WorkQueueProcessor;
 @Transactional
 public class TokenLoader {
 
+	public static final String LOADER_WORKERS = "aerogear.tokenLoader.workers";
+
 	private final Logger logger = LoggerFactory.getLogger(TokenLoader.class);
 
 	@Inject
@@ -75,13 +81,19 @@ public class TokenLoader {
 	private TopicProcessor<MessageHolderWithVariants> nextBatchEvent;
 
 	@Inject
-	private ApplicationContext context;
+	private SenderRegistry senderRegistry;
+
+	private final int workers = tryGetIntegerProperty(LOADER_WORKERS, Runtime.getRuntime().availableProcessors());
 	@Inject
 	private TokenLoaderWrapper wrapper;
 
 	@PostConstruct
 	public void subscribe() {
-		nextBatchEvent.repeat().subscribe(s -> wrapper.loadAndQueueTokenBatch(s));
+		// batches of one variant are queued in order, as long as all messages of its application are loaded by one worker
+		final boolean ordered = Boolean.parseBoolean(tryGetProperty(NotificationDispatcher.ORDERED_PER_VARIANT, "false"));
+		ParallelStage.subscribe(nextBatchEvent.repeat(), "token-loader", workers,
+				ordered ? (MessageHolderWithVariants m) -> m.getPushMessageInformation().getPushApplicationId() : null,
+				wrapper::loadAndQueueTokenBatch);
 	}
 
 	/**
@@ -111,8 +123,7 @@ public class TokenLoader {
 		final Collection<Variant> variants = msg.getVariants();
 		final String lastTokenFromPreviousBatch = msg.getLastTokenFromPreviousBatch();
 
-		final SenderConfiguration configuration = BeanFactoryAnnotationUtils.qualifiedBeanOfType(
-				context.getAutowireCapableBeanFactory(), SenderConfiguration.class, variantType.name());
+		final SenderConfiguration configuration = senderRegistry.getConfiguration(variantType);
 
 		int serialId = msg.getLastSerialId();
 
@@ -32,6 +32,7 @@ import org.jboss.aerogear.unifiedpush.service.impl.health.HealthDetails;
 import org.jboss.aerogear.unifiedpush.service.impl.health.Ping;
 import org.jboss.aerogear.unifiedpush.service.impl.health.PushNetwork;
 import org.jboss.aerogear.unifiedpush.service.impl.health.Status;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
@@ -64,7 +65,7 @@ public class HealthNetworkServiceImpl implements HealthNetworkService {
         }
     }
 
-    @Async
+    @Async(AsyncConfig.HEALTH_EXECUTOR)
     @Override
     public Future<List<HealthDetails>> networkStatus() {
         final List<HealthDetails> results = new ArrayList<>(PUSH_NETWORKS.size());
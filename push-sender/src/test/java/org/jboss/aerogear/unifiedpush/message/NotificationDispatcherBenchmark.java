@@ -0,0 +1,135 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.aerogear.unifiedpush.api.AndroidVariant;
+import org.jboss.aerogear.unifiedpush.api.FlatPushMessageInformation;
+import org.jboss.aerogear.unifiedpush.api.VariantType;
+import org.jboss.aerogear.unifiedpush.message.holder.MessageHolderWithTokens;
+import org.jboss.aerogear.unifiedpush.message.retry.DispatchRetryScheduler;
+import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import reactor.core.publisher.WorkQueueProcessor;
+
+/**
+ * Batches per second sent by the {@link NotificationDispatcher} to a stub sender, which takes 1 ms per batch,
+ * for different numbers of workers, with and without per-variant ordering.
+ *
+ * Not a test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...NotificationDispatcherBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationDispatcherBenchmark {
+
+    private static final int BATCHES = 256;
+    private static final int VARIANTS = 32;
+    private static final long SEND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"1", "4", "8"})
+    public int workers;
+
+    @Param({"false", "true"})
+    public boolean orderedPerVariant;
+
+    private WorkQueueProcessor<MessageHolderWithTokens> messages;
+    private DispatchRetryScheduler retryScheduler;
+    private List<MessageHolderWithTokens> batches;
+    private volatile CountDownLatch sent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final PushNotificationSender stubSender = (variant, clientIdentifiers, pushMessage, pushMessageInformationId, senderCallback) -> {
+            LockSupport.parkNanos(SEND_NANOS);
+            sent.countDown();
+        };
+        final Map<VariantType, PushNotificationSender> senders = new EnumMap<>(VariantType.class);
+        senders.put(VariantType.ANDROID, stubSender);
+        final SenderRegistry senderRegistry = new SenderRegistry();
+        ReflectionTestUtils.setField(senderRegistry, "senders", senders);
+
+        messages = WorkQueueProcessor.<MessageHolderWithTokens>builder().share(true).build();
+        retryScheduler = new DispatchRetryScheduler();
+
+        final NotificationDispatcher dispatcher = new NotificationDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "senderRegistry", senderRegistry);
+        ReflectionTestUtils.setField(dispatcher, "messages", messages);
+        ReflectionTestUtils.setField(dispatcher, "retryScheduler", retryScheduler);
+        ReflectionTestUtils.setField(dispatcher, "workers", workers);
+        ReflectionTestUtils.setField(dispatcher, "orderedPerVariant", orderedPerVariant);
+        dispatcher.subscribe();
+
+        final FlatPushMessageInformation information = new FlatPushMessageInformation();
+        final UnifiedPushMessage message = new UnifiedPushMessage();
+        batches = new ArrayList<>(BATCHES);
+        for (int i = 0; i < BATCHES; i++) {
+            final AndroidVariant variant = new AndroidVariant();
+            variant.setVariantID("variant-" + (i % VARIANTS));
+            final ArrayList<String> tokens = new ArrayList<>();
+            tokens.add("token-" + i);
+            batches.add(new MessageHolderWithTokens(information, message, variant, tokens, i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        messages.shutdown();
+        retryScheduler.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCHES)
+    public void dispatch() throws InterruptedException {
+        sent = new CountDownLatch(BATCHES);
+        batches.forEach(messages::onNext);
+        sent.await();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationDispatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
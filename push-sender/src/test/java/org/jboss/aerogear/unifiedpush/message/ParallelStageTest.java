@@ -0,0 +1,88 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+public class ParallelStageTest {
+
+    // distinct lanes with 4 workers: "a" to "d" hash to 97 to 100
+    private static final List<String> KEYS = Arrays.asList("a", "b", "c", "d");
+    private static final int BATCHES_PER_KEY = 20;
+    private static final int LATENCY_MILLIS = 5;
+
+    private final Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    public void shouldKeepOrderPerKeyAndRunKeysInParallel() throws InterruptedException {
+        // batches of the keys interleaved: a:0, b:0, c:0, d:0, a:1, ...
+        final List<String> batches = IntStream.range(0, BATCHES_PER_KEY).boxed()
+                .flatMap(sequence -> KEYS.stream().map(key -> key + ":" + sequence))
+                .collect(Collectors.toList());
+        final CountDownLatch done = new CountDownLatch(batches.size());
+
+        final Disposable stage = ParallelStage.subscribe(Flux.fromIterable(batches), "test-stage", KEYS.size(),
+                batch -> batch.split(":")[0], batch -> {
+                    handle(batch);
+                    done.countDown();
+                });
+        try {
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            stage.dispose();
+        }
+
+        final List<Integer> inOrder = IntStream.range(0, BATCHES_PER_KEY).boxed().collect(Collectors.toList());
+        assertThat(handled).containsOnlyKeys(KEYS);
+        handled.values().forEach(sequences -> assertThat(sequences).isEqualTo(inOrder));
+        assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(KEYS.size());
+    }
+
+    private void handle(String batch) {
+        final String[] keyAndSequence = batch.split(":");
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        handled.computeIfAbsent(keyAndSequence[0], key -> Collections.synchronizedList(new ArrayList<>()))
+                .add(Integer.valueOf(keyAndSequence[1]));
+    }
+}
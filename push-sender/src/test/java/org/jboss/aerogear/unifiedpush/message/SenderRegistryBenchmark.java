@@ -0,0 +1,128 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.api.VariantType;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per batch overhead of resolving the sender and its configuration: bean factory lookup, as done before
+ * {@link SenderRegistry}, compared with the registry.
+ *
+ * Not a test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...SenderRegistryBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SenderRegistryBenchmark {
+
+    // roughly the number of beans of a running server
+    private static final int OTHER_BEANS = 300;
+
+    private AnnotationConfigApplicationContext context;
+    private SenderRegistry registry;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(Senders.class, SenderRegistry.class);
+        for (int i = 0; i < OTHER_BEANS; i++) {
+            context.registerBean("bean" + i, Object.class, Object::new);
+        }
+        context.refresh();
+        registry = context.getBean(SenderRegistry.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void beanFactoryLookup(Blackhole blackhole) {
+        blackhole.consume(BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+                context.getAutowireCapableBeanFactory(), SenderConfiguration.class, VariantType.IOS.name()));
+        blackhole.consume(BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+                context.getAutowireCapableBeanFactory(), PushNotificationSender.class, VariantType.IOS.name()));
+    }
+
+    @Benchmark
+    public void registry(Blackhole blackhole) {
+        blackhole.consume(registry.getConfiguration(VariantType.IOS));
+        blackhole.consume(registry.getSender(VariantType.IOS));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SenderRegistryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Configuration
+    static class Senders {
+
+        @Bean
+        @Qualifier(VariantType.ANDROIDQ)
+        public PushNotificationSender androidSender() {
+            return (variant, clientIdentifiers, pushMessage, pushMessageInformationId, senderCallback) -> { };
+        }
+
+        @Bean
+        @Qualifier(VariantType.IOSQ)
+        public PushNotificationSender iosSender() {
+            return (variant, clientIdentifiers, pushMessage, pushMessageInformationId, senderCallback) -> { };
+        }
+
+        @Bean
+        @Qualifier(VariantType.ANDROIDQ)
+        public SenderConfiguration androidConfiguration() {
+            return new SenderConfiguration(10, 1000);
+        }
+
+        @Bean
+        @Qualifier(VariantType.IOSQ)
+        public SenderConfiguration iosConfiguration() {
+            return new SenderConfiguration(3, 2000);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.jboss.aerogear.unifiedpush.api.VariantType;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.message.sender.PushNotificationSender;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+public class SenderRegistryTest {
+
+    @Test
+    public void shouldResolveQualifiedBeansOnRefresh() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(Senders.class, SenderRegistry.class)) {
+            final SenderRegistry registry = context.getBean(SenderRegistry.class);
+
+            assertThat(registry.getSender(VariantType.IOS)).isSameAs(context.getBean("iosSender"));
+            assertThat(registry.getConfiguration(VariantType.IOS)).isSameAs(context.getBean("iosConfiguration"));
+            assertThat(registry.getConfiguration(VariantType.ANDROID)).isSameAs(context.getBean("androidConfiguration"));
+        }
+    }
+
+    @Configuration
+    static class Senders {
+
+        @Bean
+        @Qualifier(VariantType.IOSQ)
+        public PushNotificationSender iosSender() {
+            return (variant, clientIdentifiers, pushMessage, pushMessageInformationId, senderCallback) -> { };
+        }
+
+        @Bean
+        @Qualifier(VariantType.IOSQ)
+        public SenderConfiguration iosConfiguration() {
+            return new SenderConfiguration(3, 2000);
+        }
+
+        @Bean
+        @Qualifier(VariantType.ANDROIDQ)
+        public SenderConfiguration androidConfiguration() {
+            return new SenderConfiguration(10, 1000);
+        }
+    }
+}
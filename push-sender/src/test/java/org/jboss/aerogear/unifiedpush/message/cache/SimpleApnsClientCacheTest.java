@@ -0,0 +1,129 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.jboss.aerogear.unifiedpush.api.iOSVariant;
+import org.jboss.aerogear.unifiedpush.event.iOSVariantUpdateEvent;
+import org.junit.Test;
+
+import com.turo.pushy.apns.ApnsClient;
+
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+public class SimpleApnsClientCacheTest {
+
+    private final SimpleApnsClientCache cache = new SimpleApnsClientCache();
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        final iOSVariant variant = variant("variant-1");
+        final ApnsClient client = connectedClient();
+
+        assertThat(cache.getApnsClientForVariant(variant, () -> client)).isSameAs(client);
+        assertThat(cache.getApnsClientForVariant(variant, () -> connectedClient())).isSameAs(client);
+
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getConnects()).isEqualTo(1);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotCacheDisconnectedClient() {
+        final iOSVariant variant = variant("variant-1");
+        final ApnsClient client = mock(ApnsClient.class);
+
+        cache.getApnsClientForVariant(variant, () -> client);
+
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getConnects()).isZero();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void shouldCountDisconnectOnVariantUpdate() {
+        final iOSVariant variant = variant("variant-1");
+        cache.getApnsClientForVariant(variant, this::connectedClient);
+
+        cache.disconnectOnChange(new iOSVariantUpdateEvent(variant));
+
+        assertThat(cache.getDisconnects()).isEqualTo(1);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void shouldShareTokenConnectionOnlyForTheSameKey() {
+        final iOSVariant variant = tokenVariant("variant-1", "org.aerobase.app", "KEY-1");
+        // other apps of the team share the connection, the topic is set per notification
+        final iOSVariant sameKey = tokenVariant("variant-2", "org.aerobase.other", "KEY-1");
+        final iOSVariant otherKey = tokenVariant("variant-3", "org.aerobase.app", "KEY-2");
+        final ApnsClient client = connectedClient();
+
+        cache.getApnsClientForVariant(variant, () -> client);
+
+        assertThat(cache.getApnsClientForVariant(sameKey, this::connectedClient)).isSameAs(client);
+        // same team and key id, but another signing key
+        assertThat(cache.getApnsClientForVariant(otherKey, this::connectedClient)).isNotSameAs(client);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldReturnConnectionWinningTheRace() {
+        final iOSVariant variant = variant("variant-1");
+        final ApnsClient winner = connectedClient();
+        final ApnsClient loser = connectedClient();
+
+        // a concurrent prewarm caches its connection while this sender is connecting
+        final ApnsClient client = cache.getApnsClientForVariant(variant, () -> {
+            cache.apnsClientExpiringMap.put("variant-1-dev", winner);
+            return loser;
+        });
+
+        assertThat(client).isSameAs(winner);
+        assertThat(cache.size()).isEqualTo(1);
+        verify(loser).disconnect();
+        verify(winner, never()).disconnect();
+    }
+
+    private ApnsClient connectedClient() {
+        final ApnsClient client = mock(ApnsClient.class);
+        when(client.isConnected()).thenReturn(true);
+        when(client.disconnect()).thenReturn(ImmediateEventExecutor.INSTANCE.newSucceededFuture(null));
+        return client;
+    }
+
+    private static iOSVariant variant(String variantID) {
+        final iOSVariant variant = new iOSVariant();
+        variant.setVariantID(variantID);
+        return variant;
+    }
+
+    private static iOSVariant tokenVariant(String variantID, String bundleId, String privateKey) {
+        final iOSVariant variant = variant(variantID);
+        variant.setTeamId("TEAM");
+        variant.setKeyId("KEYID");
+        variant.setBundleId(bundleId);
+        variant.setPrivateKey(privateKey);
+        return variant;
+    }
+}
@@ -68,4 +68,13 @@ public class TestSenderConfigurationProducer extends AbstractNoCassandraServiceT
 			System.clearProperty("aerogear.ios.batchSize");
 		}
 	}
+
+	@Test
+	public void testWindowsWnsConcurrency() {
+		SenderConfiguration configuration = BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+				applicationContext.getAutowireCapableBeanFactory(), SenderConfiguration.class,
+				VariantType.WINDOWSWNSQ);
+		assertEquals(10, configuration.concurrency());
+		assertEquals(1000, configuration.batchSize());
+	}
 }
@@ -0,0 +1,63 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.aerogear.unifiedpush.message.holder.MessageHolderWithTokens;
+import org.junit.After;
+import org.junit.Test;
+
+public class DispatchRetrySchedulerTest {
+
+    private final DispatchRetryScheduler scheduler = new DispatchRetryScheduler();
+
+    @After
+    public void tearDown() {
+        scheduler.stop();
+    }
+
+    @Test
+    public void shouldHandOverParkedBatchWithItsAttempt() throws Exception {
+        final CompletableFuture<ScheduledBatch> handled = new CompletableFuture<>();
+        final MessageHolderWithTokens message = mock(MessageHolderWithTokens.class);
+        scheduler.start(handled::complete);
+
+        assertThat(scheduler.schedule(message, 2, 1234L, 0)).isTrue();
+
+        final ScheduledBatch batch = handled.get(5, TimeUnit.SECONDS);
+        assertThat(batch.getMessage()).isSameAs(message);
+        assertThat(batch.getAttempt()).isEqualTo(2);
+        assertThat(batch.getParkedSince()).isEqualTo(1234L);
+        assertThat(scheduler.getScheduled()).isEqualTo(1);
+        assertThat(scheduler.getPending()).isZero();
+    }
+
+    @Test
+    public void shouldNotMarkRetriedBatchAsParked() throws Exception {
+        final CompletableFuture<ScheduledBatch> handled = new CompletableFuture<>();
+        scheduler.start(handled::complete);
+
+        scheduler.schedule(mock(MessageHolderWithTokens.class), 3, 0);
+
+        assertThat(handled.get(5, TimeUnit.SECONDS).getParkedSince()).isZero();
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.retry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.jboss.aerogear.unifiedpush.message.exception.PushNetworkUnreachableException;
+import org.junit.Test;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy retryPolicy = new RetryPolicy(3, 100, 1000);
+
+    @Test
+    public void shouldRetryNetworkFailures() {
+        assertThat(retryPolicy.isRetryable(new PushNetworkUnreachableException("503"))).isTrue();
+        assertThat(retryPolicy.isRetryable(new RuntimeException(new SocketTimeoutException()))).isTrue();
+    }
+
+    @Test
+    public void shouldNotRetryOtherFailures() {
+        assertThat(retryPolicy.isRetryable(new IllegalArgumentException("Not able to construct APNS client"))).isFalse();
+        assertThat(retryPolicy.isRetryable(new IOException("broken payload"))).isFalse();
+    }
+
+    @Test
+    public void shouldLimitAttempts() {
+        assertThat(retryPolicy.canRetry(2)).isTrue();
+        assertThat(retryPolicy.canRetry(3)).isFalse();
+    }
+
+    @Test
+    public void shouldBackOffExponentiallyWithJitter() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(retryPolicy.backoffMillis(1)).isBetween(50L, 100L);
+            assertThat(retryPolicy.backoffMillis(3)).isBetween(200L, 400L);
+            assertThat(retryPolicy.backoffMillis(10)).isBetween(500L, 1000L);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jboss.aerogear.adm.AdmService;
+import org.jboss.aerogear.unifiedpush.api.AdmVariant;
+import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.cache.AdmServiceCache;
+import org.jboss.aerogear.unifiedpush.message.cache.ServiceConstructor;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AdmPushNotificationSenderTest {
+
+    private static final String PUSH_MESSAGE_ID = "123";
+
+    private final AdmPushNotificationSender sender = new AdmPushNotificationSender();
+    private final SenderExecutor senderExecutor = new SenderExecutor();
+    private final AdmService admService = mock(AdmService.class);
+    private final ClientInstallationAsyncService clientInstallationAsyncService = mock(ClientInstallationAsyncService.class);
+    private final NotificationSenderCallback callback = mock(NotificationSenderCallback.class);
+    private final UnifiedPushMessage message = new UnifiedPushMessage();
+    private final AdmVariant variant = new AdmVariant();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final AdmServiceCache admServiceCache = mock(AdmServiceCache.class);
+        when(admServiceCache.getServiceForVariant(any(AdmVariant.class), any(ServiceConstructor.class))).thenReturn(admService);
+
+        ReflectionTestUtils.setField(sender, "admServiceCache", admServiceCache);
+        ReflectionTestUtils.setField(sender, "clientInstallationAsyncService", clientInstallationAsyncService);
+        ReflectionTestUtils.setField(sender, "senderExecutor", senderExecutor);
+        ReflectionTestUtils.setField(sender, "configuration", new SenderConfiguration(10, 1000, 4));
+
+        variant.setVariantID("adm-variant");
+        variant.setClientId("client-id");
+        variant.setClientSecret("client-secret");
+        message.getMessage().setAlert("Hello");
+    }
+
+    @After
+    public void tearDown() {
+        senderExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldReportSuccessOncePerBatch() throws Exception {
+        sender.sendPushMessage(variant, Arrays.asList("token1", "token2", "token3"), message, PUSH_MESSAGE_ID, callback);
+
+        verify(admService, times(3)).sendMessageToDevice(anyString(), eq("client-id"), eq("client-secret"), anyString());
+        verify(callback, times(1)).onSuccess();
+        verify(callback, never()).onError(anyString());
+        verify(clientInstallationAsyncService, never()).removeInstallationsForVariantByDeviceTokens(anyString(), anySet());
+    }
+
+    @Test
+    public void shouldSendMessageWithoutId() throws Exception {
+        sender.sendPushMessage(variant, Arrays.asList("token1", "token2"), message, null, callback);
+
+        verify(admService, times(2)).sendMessageToDevice(anyString(), eq("client-id"), eq("client-secret"), anyString());
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void shouldRemoveUnregisteredTokens() throws Exception {
+        doThrow(admError(410, "Unregistered"))
+                .when(admService).sendMessageToDevice(eq("token2"), anyString(), anyString(), anyString());
+
+        sender.sendPushMessage(variant, Arrays.asList("token1", "token2"), message, PUSH_MESSAGE_ID, callback);
+
+        verify(clientInstallationAsyncService).removeInstallationsForVariantByDeviceTokens("adm-variant", Collections.singleton("token2"));
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void shouldReportFailureCounts() throws Exception {
+        doThrow(new RuntimeException("connection refused"))
+                .when(admService).sendMessageToDevice(eq("token2"), anyString(), anyString(), anyString());
+
+        sender.sendPushMessage(variant, Arrays.asList("token1", "token2", "token3"), message, PUSH_MESSAGE_ID, callback);
+
+        verify(callback).onError("Error sending payload to ADM server for 1 of 3 tokens (2 delivered)");
+        verify(callback, never()).onSuccess();
+    }
+
+    @Test
+    public void shouldDetectUnregisteredByStatusCodeAndReason() {
+        assertThat(AdmPushNotificationSender.isUnregistered(admError(410, "Unregistered"))).isTrue();
+        assertThat(AdmPushNotificationSender.isUnregistered(admError(400, "InvalidRegistrationId"))).isTrue();
+
+        assertThat(AdmPushNotificationSender.isUnregistered(admError(400, "InvalidData"))).isFalse();
+        assertThat(AdmPushNotificationSender.isUnregistered(admError(500, "InvalidRegistrationId"))).isFalse();
+        assertThat(AdmPushNotificationSender.isUnregistered(new RuntimeException("Unregistered device"))).isFalse();
+        assertThat(AdmPushNotificationSender.isUnregistered(new RuntimeException())).isFalse();
+    }
+
+    @Test
+    public void shouldAddPushMessageIdToPayload() {
+        final String payload = AdmPushNotificationSender.createPayload(message, PUSH_MESSAGE_ID);
+
+        assertThat(payload).contains("Hello").contains(PUSH_MESSAGE_ID);
+    }
+
+    private static RuntimeException admError(int statusCode, String reason) {
+        return new RuntimeException(String.format("ERROR: The enqueue request failed with a %d response code, "
+                + "with the following message: {\"reason\":\"%s\"}", statusCode, reason));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SenderExecutorTest {
+
+    private SenderExecutor executor = new SenderExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldApplyTaskToAllItems() {
+        final List<Integer> items = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+        final List<Integer> results = executor.invokeAll(items, 8, item -> item * 2);
+
+        assertThat(results).hasSize(100);
+        assertThat(results).containsOnlyElementsOf(items.stream().map(item -> item * 2).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void shouldNotExceedConcurrency() {
+        final List<Integer> items = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        executor.invokeAll(items, 4, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return inFlight.decrementAndGet();
+        });
+
+        assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(4);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldPropagateTaskFailure() {
+        final List<Integer> items = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+
+        executor.invokeAll(items, 4, item -> {
+            throw new IllegalStateException("failed: " + item);
+        });
+    }
+}
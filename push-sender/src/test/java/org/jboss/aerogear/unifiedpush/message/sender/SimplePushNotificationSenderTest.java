@@ -0,0 +1,187 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.jboss.aerogear.unifiedpush.api.SimplePushVariant;
+import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Sends SimplePush notifications to a local stub server, which answers every PUT after a fixed latency.
+ */
+public class SimplePushNotificationSenderTest {
+
+    private static final int LATENCY_MILLIS = 20;
+
+    // paths of the received PUTs, in arrival order
+    private final Queue<String> received = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SenderExecutor senderExecutor;
+    private ClientInstallationAsyncService clientInstallationAsyncService;
+    private SimplePushVariant variant;
+
+    @Before
+    public void startServer() throws IOException {
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            final String path = exchange.getRequestURI().getPath();
+            received.add(path);
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+
+            final int status = path.endsWith("/gone") ? 410 : path.endsWith("/missing") ? 404 : path.endsWith("/broken") ? 500 : 200;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        senderExecutor = new SenderExecutor();
+        clientInstallationAsyncService = mock(ClientInstallationAsyncService.class);
+        variant = new SimplePushVariant();
+        variant.setVariantID("simple-push-variant");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        senderExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldSucceedWhenAllEndpointsAccepted() throws IOException {
+        final NotificationSenderCallback callback = mock(NotificationSenderCallback.class);
+
+        send(8, endpoints("ok", 10), callback);
+
+        verify(callback).onSuccess();
+        verify(callback, never()).onError(anyString());
+        verify(clientInstallationAsyncService, never()).removeInstallationsForVariantByDeviceTokens(anyString(), anySet());
+    }
+
+    @Test
+    public void shouldRemoveUnknownEndpoints() throws IOException {
+        final NotificationSenderCallback callback = mock(NotificationSenderCallback.class);
+        final List<String> endpoints = Arrays.asList(url("1/ok"), url("2/gone"), url("3/missing"));
+
+        send(8, endpoints, callback);
+
+        verify(clientInstallationAsyncService).removeInstallationsForVariantByDeviceTokens("simple-push-variant",
+                new HashSet<>(Arrays.asList(url("2/gone"), url("3/missing"))));
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void shouldReportFailedEndpoints() throws IOException {
+        final NotificationSenderCallback callback = mock(NotificationSenderCallback.class);
+        final List<String> endpoints = Arrays.asList(url("1/ok"), url("2/broken"), url("3/gone"));
+
+        send(8, endpoints, callback);
+
+        verify(callback).onError("Error delivering SimplePush payload to 1 of 3 endpoints");
+        verify(callback, never()).onSuccess();
+    }
+
+    @Test
+    public void shouldSendInOrderWithoutConcurrency() throws IOException {
+        final List<String> endpoints = endpoints("ok", 10);
+
+        send(1, endpoints, mock(NotificationSenderCallback.class));
+
+        assertThat(received).containsExactlyElementsOf(paths(endpoints));
+        assertThat(maxInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSendToEveryEndpointOnceWithinConcurrency() throws IOException {
+        final List<String> endpoints = endpoints("ok", 40);
+
+        send(8, endpoints, mock(NotificationSenderCallback.class));
+
+        assertThat(received).containsOnlyElementsOf(paths(endpoints)).hasSameSizeAs(endpoints).doesNotHaveDuplicates();
+        assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(8);
+    }
+
+    private void send(int concurrency, List<String> endpoints, NotificationSenderCallback callback) throws IOException {
+        final SimplePushNotificationSender sender = new SimplePushNotificationSender();
+        ReflectionTestUtils.setField(sender, "clientInstallationAsyncService", clientInstallationAsyncService);
+        ReflectionTestUtils.setField(sender, "senderExecutor", senderExecutor);
+        ReflectionTestUtils.setField(sender, "configuration", new SenderConfiguration(10, 1000, concurrency));
+        sender.initialize();
+
+        final UnifiedPushMessage message = new UnifiedPushMessage();
+        message.getMessage().setSimplePush("version=1");
+
+        try {
+            sender.sendPushMessage(variant, endpoints, message, "123", callback);
+        } finally {
+            sender.destroy();
+        }
+    }
+
+    private List<String> endpoints(String status, int count) {
+        return IntStream.range(0, count).mapToObj(i -> url(i + "/" + status)).collect(Collectors.toList());
+    }
+
+    private static List<String> paths(List<String> urls) {
+        return urls.stream().map(url -> URI.create(url).getPath()).collect(Collectors.toList());
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + "/endpoint/" + path;
+    }
+}
@@ -1,21 +1,43 @@
 package org.jboss.aerogear.unifiedpush.message.sender;
 
+import ar.com.fernandospr.wns.WnsService;
+import ar.com.fernandospr.wns.model.WnsNotificationRequestOptional;
+import ar.com.fernandospr.wns.model.WnsNotificationResponse;
 import ar.com.fernandospr.wns.model.WnsTile;
 import ar.com.fernandospr.wns.model.WnsToast;
+import org.jboss.aerogear.unifiedpush.api.WindowsWNSVariant;
 import org.jboss.aerogear.unifiedpush.message.Message;
+import org.jboss.aerogear.unifiedpush.message.UnifiedPushMessage;
+import org.jboss.aerogear.unifiedpush.message.cache.ServiceConstructor;
+import org.jboss.aerogear.unifiedpush.message.cache.WnsServiceCache;
+import org.jboss.aerogear.unifiedpush.message.configuration.SenderConfiguration;
 import org.jboss.aerogear.unifiedpush.message.windows.TileType;
 import org.jboss.aerogear.unifiedpush.message.windows.ToastType;
 import org.jboss.aerogear.unifiedpush.message.windows.Type;
 import org.jboss.aerogear.unifiedpush.message.windows.Windows;
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  *
@@ -23,11 +45,93 @@ import static org.assertj.core.api.Assertions.assertThat;
 public class WNSPushNotificationSenderTest {
 
     private static final String QUERY = "?ke2=value2&key=value";
+    private static final String PUSH_MESSAGE_ID = "123";
+    private static final int CONCURRENCY = 4;
+    private static final int LATENCY_MILLIS = 20;
+
     private WNSPushNotificationSender sender = new WNSPushNotificationSender();
+    private final SenderExecutor senderExecutor = new SenderExecutor();
+    private final NotificationSenderCallback callback = mock(NotificationSenderCallback.class);
+    private final UnifiedPushMessage message = new UnifiedPushMessage();
+    private final WindowsWNSVariant variant = wnsVariant("wns-variant", "client-secret");
+
+    // services created by the cache, the real cache decides when a new one is needed
+    private final List<WnsService> services = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private volatile int responseCode = 200;
 
     @Before
     public void setUp() {
-        sender.setPushMessageInformationId("123");
+        final WnsServiceCache wnsServiceCache = new WnsServiceCache() {
+            @Override
+            public WnsService getServiceForVariant(WindowsWNSVariant variant, ServiceConstructor<WnsService> constructor) {
+                return super.getServiceForVariant(variant, () -> createService());
+            }
+        };
+
+        ReflectionTestUtils.setField(sender, "wnsServiceCache", wnsServiceCache);
+        ReflectionTestUtils.setField(sender, "clientInstallationAsyncService", mock(ClientInstallationAsyncService.class));
+        ReflectionTestUtils.setField(sender, "senderExecutor", senderExecutor);
+        ReflectionTestUtils.setField(sender, "configuration", new SenderConfiguration(10, 1000, CONCURRENCY));
+
+        message.getMessage().setAlert("Hello");
+    }
+
+    @After
+    public void tearDown() {
+        senderExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldReuseServiceAcrossBatchesOfVariant() throws Exception {
+        //when
+        sender.sendPushMessage(variant, channels("a", 3), message, PUSH_MESSAGE_ID, callback);
+        sender.sendPushMessage(variant, channels("b", 3), message, PUSH_MESSAGE_ID, callback);
+
+        //then
+        assertThat(services).hasSize(1);
+        verify(services.get(0), times(6)).pushToast(anyString(), any(WnsNotificationRequestOptional.class), any(WnsToast.class));
+        verify(callback, times(2)).onSuccess();
+        verify(callback, never()).onError(anyString());
+    }
+
+    @Test
+    public void shouldCreateServicePerVariantCredentials() {
+        //when
+        sender.sendPushMessage(variant, channels("a", 1), message, PUSH_MESSAGE_ID, callback);
+        sender.sendPushMessage(wnsVariant("wns-variant", "new-secret"), channels("b", 1), message, PUSH_MESSAGE_ID, callback);
+        sender.sendPushMessage(wnsVariant("other-variant", "client-secret"), channels("c", 1), message, PUSH_MESSAGE_ID, callback);
+        sender.sendPushMessage(variant, channels("d", 1), message, PUSH_MESSAGE_ID, callback);
+
+        //then
+        assertThat(services).hasSize(3);
+    }
+
+    @Test
+    public void shouldCreateNewServiceOnceAccessTokenIsRejected() {
+        //given
+        responseCode = 401;
+
+        //when
+        sender.sendPushMessage(variant, channels("a", 2), message, PUSH_MESSAGE_ID, callback);
+        responseCode = 200;
+        sender.sendPushMessage(variant, channels("b", 2), message, PUSH_MESSAGE_ID, callback);
+
+        //then
+        assertThat(services).hasSize(2);
+        verify(callback).onError("Unable to submit notification to WNS for 2 of 2 channels");
+        verify(callback).onSuccess();
+    }
+
+    @Test
+    public void shouldSendToChannelsWithinConcurrency() {
+        //when
+        sender.sendPushMessage(variant, channels("a", 40), message, PUSH_MESSAGE_ID, callback);
+
+        //then
+        assertThat(maxInFlight.get()).isGreaterThan(1).isLessThanOrEqualTo(CONCURRENCY);
+        verify(callback).onSuccess();
     }
 
     @Test
@@ -37,12 +141,25 @@ public class WNSPushNotificationSenderTest {
         message.setUserData(new HashMap<>());
 
         //when
-        WnsToast toastMessage = sender.createSimpleToastMessage(message);
+        WnsToast toastMessage = sender.createSimpleToastMessage(message, PUSH_MESSAGE_ID);
 
         //then
         assertThat(toastMessage.launch).isEqualTo("/Root.xaml?aerogear-push-id=123");
     }
 
+    @Test
+    public void shouldOmitMissingPushMessageId() {
+        //given
+        Message message = getUnifiedPushMessage();
+        message.setUserData(new HashMap<>());
+
+        //when
+        WnsToast toastMessage = sender.createSimpleToastMessage(message, null);
+
+        //then
+        assertThat(toastMessage.launch).isEqualTo("/Root.xaml");
+    }
+
     @Test
     public void shouldAddAlertAutomatically() {
         //given
@@ -50,7 +167,7 @@ public class WNSPushNotificationSenderTest {
         message.setAlert("My message");
 
         //when
-        WnsToast toastMessage = sender.createSimpleToastMessage(message);
+        WnsToast toastMessage = sender.createSimpleToastMessage(message, PUSH_MESSAGE_ID);
 
         //then
         assertThat(toastMessage.launch).isEqualTo("/Root.xaml" + QUERY + "&message=My+message&aerogear-push-id=123");
@@ -62,7 +179,7 @@ public class WNSPushNotificationSenderTest {
         Message pushMessage = getUnifiedPushMessage();
 
         //when
-        final WnsToast toast = sender.createSimpleToastMessage(pushMessage);
+        final WnsToast toast = sender.createSimpleToastMessage(pushMessage, PUSH_MESSAGE_ID);
 
         //then
         assertThat(toast.launch).isEqualTo("/Root.xaml" + QUERY + "&aerogear-push-id=123");
@@ -75,7 +192,7 @@ public class WNSPushNotificationSenderTest {
         pushMessage.getWindows().setPage("cordova");
 
         //when
-        final WnsToast toast = sender.createSimpleToastMessage(pushMessage);
+        final WnsToast toast = sender.createSimpleToastMessage(pushMessage, PUSH_MESSAGE_ID);
 
         //then
         assertThat(toast.launch).isEqualTo(WNSPushNotificationSender.CORDOVA_PAGE + QUERY + "&aerogear-push-id=123");
@@ -93,7 +210,7 @@ public class WNSPushNotificationSenderTest {
         windows.setImages(Collections.singletonList("image1.jpg"));
 
         //when
-        WnsToast toastMessage = sender.createToastMessage(message);
+        WnsToast toastMessage = sender.createToastMessage(message, PUSH_MESSAGE_ID);
 
         //then
         assertThat(toastMessage).isNotNull();
@@ -119,6 +236,50 @@ public class WNSPushNotificationSenderTest {
         assertThat(tileMessage.visual.binding.texts.get(0).value).isEqualTo("title");
     }
 
+    private WnsService createService() {
+        final WnsService service = mock(WnsService.class);
+        try {
+            when(service.pushToast(anyString(), any(WnsNotificationRequestOptional.class), any(WnsToast.class)))
+                    .thenAnswer(invocation -> {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        try {
+                            Thread.sleep(LATENCY_MILLIS);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                        return response((String) invocation.getArguments()[0], responseCode);
+                    });
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        services.add(service);
+        return service;
+    }
+
+    private static WnsNotificationResponse response(String channelUri, int code) {
+        // the response fields are final and only set from the HTTP response
+        final WnsNotificationResponse response = mock(WnsNotificationResponse.class);
+        ReflectionTestUtils.setField(response, "channelUri", channelUri);
+        ReflectionTestUtils.setField(response, "code", code);
+        return response;
+    }
+
+    private static WindowsWNSVariant wnsVariant(String variantID, String clientSecret) {
+        final WindowsWNSVariant variant = new WindowsWNSVariant();
+        variant.setVariantID(variantID);
+        variant.setSid("sid");
+        variant.setClientSecret(clientSecret);
+        return variant;
+    }
+
+    private static List<String> channels(String prefix, int count) {
+        final List<String> channels = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            channels.add("https://wns.example.com/" + prefix + i);
+        }
+        return channels;
+    }
+
     private Message getUnifiedPushMessage() {
         Message message = new Message();
         Map<String, Object> data = new HashMap<>();
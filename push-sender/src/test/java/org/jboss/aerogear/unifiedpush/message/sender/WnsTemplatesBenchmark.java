@@ -0,0 +1,83 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ar.com.fernandospr.wns.model.WnsTile;
+import ar.com.fernandospr.wns.model.builders.WnsAbstractBuilder;
+import ar.com.fernandospr.wns.model.builders.WnsTileBuilder;
+
+/**
+ * Compares the reflective template lookup, as done before {@link WnsTemplates}, with the registry.
+ *
+ * Not a test, run it from the IDE or with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...WnsTemplatesBenchmark</code>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WnsTemplatesBenchmark {
+
+    private static final String TYPE = "TileWideBlockAndText01";
+    private final List<String> param = Arrays.asList("title", "item1", "item2", "item3", "item4", "item5");
+
+    @Benchmark
+    public WnsTile reflection() throws Exception {
+        final WnsTileBuilder builder = new WnsTileBuilder();
+        reflectiveTemplate(builder, TYPE, param);
+        return builder.build();
+    }
+
+    @Benchmark
+    public WnsTile registry() {
+        final WnsTileBuilder builder = new WnsTileBuilder();
+        WnsTemplates.apply(builder, TYPE, param);
+        return builder.build();
+    }
+
+    private static void reflectiveTemplate(WnsAbstractBuilder builder, String type, List<String> param) throws Exception {
+        for (Method method : builder.getClass().getMethods()) {
+            if (method.getName().equals("bindingTemplate" + type) && method.getParameterTypes().length == param.size()) {
+                method.invoke(builder, (Object[]) param.toArray(new String[param.size()]));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WnsTemplatesBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ar.com.fernandospr.wns.model.WnsToast;
+import ar.com.fernandospr.wns.model.builders.WnsToastBuilder;
+
+public class WnsTemplatesTest {
+
+    @Test
+    public void shouldApplyTemplate() {
+        final WnsToastBuilder builder = new WnsToastBuilder();
+
+        WnsTemplates.apply(builder, "ToastImageAndText04", Arrays.asList("image1.jpg", "title", "item1", "item2"));
+
+        final WnsToast toast = builder.build();
+        assertThat(toast.visual.binding.images.get(0).src).isEqualTo("image1.jpg");
+        assertThat(toast.visual.binding.texts.get(0).value).isEqualTo("title");
+    }
+
+    @Test
+    public void shouldRejectWrongNumberOfFields() {
+        try {
+            WnsTemplates.apply(new WnsToastBuilder(), "ToastImageAndText04", Arrays.asList("image1.jpg", "title"));
+            fail("template applied with missing fields");
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessage("this template needs 4 fields, but you specified 2");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.message.sender.apns;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.turo.pushy.apns.PushNotificationResponse;
+import com.turo.pushy.apns.util.SimpleApnsPushNotification;
+
+import io.netty.util.concurrent.FailedFuture;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.SucceededFuture;
+
+public class ApnsResponseHandlerTest {
+
+    private static final String VARIANT_ID = "ios-variant";
+
+    private final ApnsResponseHandler handler = new ApnsResponseHandler();
+    private final ClientInstallationAsyncService clientInstallationAsyncService = mock(ClientInstallationAsyncService.class);
+
+    @Before
+    public void setUp() {
+        ReflectionTestUtils.setField(handler, "clientInstallationAsyncService", clientInstallationAsyncService);
+        handler.start();
+    }
+
+    @After
+    public void tearDown() {
+        handler.stop();
+    }
+
+    @Test
+    public void shouldCountResponses() {
+        final ApnsVariantStatistics statistics = handler.statisticsFor(VARIANT_ID);
+
+        handler.onResponse(statistics, succeeded(response("token1", true, null, null)));
+        handler.onResponse(statistics, succeeded(response("token2", true, null, null)));
+        handler.onResponse(statistics, new FailedFuture<>(ImmediateEventExecutor.INSTANCE, new IOException("closed")));
+
+        assertThat(statistics.getAccepted()).isEqualTo(2);
+        assertThat(statistics.getFailed()).isEqualTo(1);
+        assertThat(handler.getStatistics()).containsKey(VARIANT_ID);
+    }
+
+    @Test
+    public void shouldRemoveInvalidTokensInBulk() {
+        final ApnsVariantStatistics statistics = handler.statisticsFor(VARIANT_ID);
+
+        handler.onResponse(statistics, succeeded(response("token1", false, "BadDeviceToken", null)));
+        handler.onResponse(statistics, succeeded(response("token2", false, "Unregistered", new Date())));
+        handler.onResponse(statistics, succeeded(response("token3", false, "TooManyRequests", null)));
+
+        verify(clientInstallationAsyncService, timeout(5000)).removeInstallationsForVariantByDeviceTokens(VARIANT_ID,
+                new HashSet<>(Arrays.asList("token1", "token2")));
+        assertThat(statistics.getRejections())
+                .containsEntry("BadDeviceToken", 1L)
+                .containsEntry("Unregistered", 1L)
+                .containsEntry("TooManyRequests", 1L);
+        assertThat(statistics.getDropped()).isZero();
+    }
+
+    @Test
+    public void shouldRemoveQueuedTokensOnStop() {
+        final ApnsVariantStatistics statistics = handler.statisticsFor(VARIANT_ID);
+
+        handler.onResponse(statistics, succeeded(response("token1", false, "BadDeviceToken", null)));
+        handler.stop();
+
+        verify(clientInstallationAsyncService).removeInstallationsForVariantByDeviceTokens(VARIANT_ID,
+                Collections.singleton("token1"));
+    }
+
+    @Test
+    public void shouldNotShareCountersBetweenVariants() {
+        handler.onResponse(handler.statisticsFor(VARIANT_ID), succeeded(response("token1", true, null, null)));
+
+        assertThat(handler.statisticsFor("other-variant").getAccepted()).isZero();
+        assertThat(handler.statisticsFor(VARIANT_ID).getRejections()).isEqualTo(Collections.emptyMap());
+    }
+
+    private static Future<PushNotificationResponse<SimpleApnsPushNotification>> succeeded(PushNotificationResponse<SimpleApnsPushNotification> response) {
+        return new SucceededFuture<>(ImmediateEventExecutor.INSTANCE, response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PushNotificationResponse<SimpleApnsPushNotification> response(String token, boolean accepted, String reason, Date invalidation) {
+        final PushNotificationResponse<SimpleApnsPushNotification> response = mock(PushNotificationResponse.class);
+        when(response.getPushNotification()).thenReturn(new SimpleApnsPushNotification(token, "topic", "{}"));
+        when(response.isAccepted()).thenReturn(accepted);
+        when(response.getRejectionReason()).thenReturn(reason);
+        when(response.getTokenInvalidationTimestamp()).thenReturn(invalidation);
+        return response;
+    }
+}
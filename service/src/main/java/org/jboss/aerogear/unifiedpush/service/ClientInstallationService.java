@@ -22,12 +22,14 @@ import java.util.Set;
 import org.jboss.aerogear.unifiedpush.api.Installation;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.dao.ResultsStream;
+import org.springframework.cache.annotation.Cacheable;
 
 /**
  * Service class used by the Server to work with Installations
  * for the different Variants.
  */
 public interface ClientInstallationService {
+    String MISSING_CACHE_NAME = "installations-missing";
 
     /**
      * Store a new Installation object on the database.
@@ -92,12 +94,14 @@ public interface ClientInstallationService {
     void removeInstallations(List<Installation> installations);
 
     /**
-     * Used for "feedback service": Collects the invalid Installations for a Variant, based on the identifier tokens.
+     * Used for "feedback service": Bulk removes the invalid Installations for a Variant, based on the identifier tokens.
      *
      * @param variantID id of the variant
      * @param deviceTokens list of tokens
+     *
+     * @return number of removed installations
      */
-    void removeInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens);
+    int removeInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens);
 
     /**
      * Used to remove single device token from UPS. Used for error handling of specific tokens
@@ -119,6 +123,20 @@ public interface ClientInstallationService {
      */
     Installation findInstallationForVariantByDeviceToken(String variantID, String deviceToken);
 
+    /**
+     * Used for "Device Authentication":
+     *
+     * Same finder as {@link #findInstallationForVariantByDeviceToken(String, String)}, unknown device-tokens are
+     * remembered for a short while, until stored by this node. Installations found are never cached.
+     *
+     * @param variantID id of the variant
+     * @param deviceToken one tokens
+     *
+     * @return the installation entity
+     */
+    @Cacheable(value = MISSING_CACHE_NAME, unless = "#result != null")
+    Installation findInstallationForAuthentication(String variantID, String deviceToken);
+
     /**
      * Used for Android installations which have less/other categories on repeated registration
      *
@@ -1,7 +1,10 @@
 package org.jboss.aerogear.unifiedpush.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.jboss.aerogear.unifiedpush.api.Alias;
@@ -24,5 +27,25 @@ public interface DocumentService {
 
 	Stream<DocumentContent> find(DocumentMetadata metadata, QueryOptions options);
 
+	/**
+	 * Counts the documents {@link #find(DocumentMetadata, QueryOptions)} would
+	 * return, without reading their content.
+	 */
+	long count(DocumentMetadata metadata, QueryOptions options);
+
+	/**
+	 * Queries the documents of several users. Users are queried concurrently,
+	 * each query first checks the user exists within the application scope.
+	 *
+	 * @param onDocument
+	 *            receives each document as soon as its user partition was read,
+	 *            possibly from several threads at once
+	 * @param onUnknown
+	 *            receives the users unknown to the application
+	 * @return a future completed once all users were queried
+	 */
+	CompletableFuture<Void> findForAliases(UUID pushApplicationId, String database, Collection<UUID> userIds,
+			QueryOptions options, Consumer<DocumentContent> onDocument, Consumer<UUID> onUnknown);
+
 	List<DocumentContent> findLatest(PushApplication pushApp, String database, String id, List<Alias> aliases);
 }
@@ -16,6 +16,9 @@
  */
 package org.jboss.aerogear.unifiedpush.service;
 
+import java.util.Date;
+import java.util.List;
+
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
 import org.springframework.cache.annotation.Cacheable;
@@ -56,6 +59,20 @@ public interface GenericVariantService {
 	@Cacheable(value = GenericVariantService.CACHE_NAME, unless = "#result == null")
 	Variant findByVariantID(String variantID);
 
+	/**
+	 * Returns the variants of the given type, whose push applications submitted push messages since the given date.
+	 *
+	 * @param type
+	 *            the variant type
+	 * @param since
+	 *            the earliest submit date of the push messages
+	 * @param <T>
+	 *            the variant type
+	 *
+	 * @return list of recently active variants
+	 */
+	<T extends Variant> List<T> findVariantsWithMessagesSince(Class<T> type, Date since);
+
 	/**
 	 * Returns the Variant from the matching client in keycloak
 	 *
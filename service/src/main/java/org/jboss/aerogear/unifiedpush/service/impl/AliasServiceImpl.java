@@ -17,9 +17,11 @@
 package org.jboss.aerogear.unifiedpush.service.impl;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -34,6 +36,9 @@ import org.jboss.aerogear.unifiedpush.service.PostDelete;
 import org.jboss.aerogear.unifiedpush.service.PushApplicationService;
 import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
 import org.jboss.aerogear.unifiedpush.service.impl.spring.IKeycloakService;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
+import org.jboss.aerogear.unifiedpush.system.AsyncWindow;
+import org.jboss.aerogear.unifiedpush.system.ConfigurationEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
@@ -45,6 +50,9 @@ import com.datastax.driver.core.utils.UUIDs;
 public class AliasServiceImpl implements AliasService {
 	private final Logger logger = LoggerFactory.getLogger(AliasServiceImpl.class);
 
+	// Aliases between two progress reports of a bulk import.
+	private static final int PROGRESS_INTERVAL = 10000;
+
 	@Inject
 	private AliasDao aliasDao;
 	@Inject
@@ -53,7 +61,16 @@ public class AliasServiceImpl implements AliasService {
 	private PushApplicationService pushApplicationService;
 	@Inject
 	private DocumentService documentService;
+	@Inject
+	private ApplicationDeletionJob deletionJob;
+	@Inject
+	private ConfigurationEnvironment environment;
 
+	/**
+	 * Bulk version of {@link #create(LoggedInUser, Alias)}, aliases are
+	 * resolved and written with the driver's async API, a bounded number of
+	 * aliases in flight.
+	 */
 	@Override
 	public List<Alias> addAll(LoggedInUser account, PushApplication pushApplication, List<Alias> aliases,
 			boolean oauth2) {
@@ -64,14 +81,46 @@ public class AliasServiceImpl implements AliasService {
 		if (oauth2)
 			keycloakService.createClientIfAbsent(account, pushApplication);
 
+		AsyncWindow window = new AsyncWindow(environment.getAliasImportConcurrency());
+		Set<String> pending = new HashSet<>();
+		long started = System.currentTimeMillis();
+
 		aliases.forEach(alias -> {
-			create(account, alias);
+			// An alias must see the earlier aliases of this import holding the
+			// same name, whether or not it is resolved by name.
+			if (!names(alias).allMatch(pending::add)) {
+				window.drain();
+				pending.clear();
+				names(alias).forEach(pending::add);
+			}
+
+			window.submit(() -> aliasDao.createAsync(alias));
 			aliasList.add(alias);
+
+			if (aliasList.size() % PROGRESS_INTERVAL == 0) {
+				logger.info("Imported {} of {} aliases to application {}, {} aliases/s", aliasList.size(),
+						aliases.size(), pushApplication.getPushApplicationID(), rate(aliasList.size(), started));
+			}
 		});
 
+		window.drain();
+
+		logger.info("Imported {} aliases to application {} in {} ms, {} aliases/s", aliasList.size(),
+				pushApplication.getPushApplicationID(), System.currentTimeMillis() - started,
+				rate(aliasList.size(), started));
+
 		return aliasList;
 	}
 
+	private static Stream<String> names(Alias alias) {
+		return Stream.of(alias.getEmail(), alias.getOther()).filter(StringUtils::isNotEmpty)
+				.map(String::toLowerCase);
+	}
+
+	private static long rate(int count, long started) {
+		return count * 1000L / Math.max(1, System.currentTimeMillis() - started);
+	}
+
 	@Override
 	public void updateAliasePassword(LoggedInUser account, String aliasId, String currentPassword, String newPassword) {
 		keycloakService.updateUserPassword(account, aliasId, currentPassword, newPassword);
@@ -185,29 +234,10 @@ public class AliasServiceImpl implements AliasService {
 	 * destructive - when true also remove KC entities and related documents
 	 */
 	@Override
-	@Async
+	@Async(AsyncConfig.DELETION_EXECUTOR)
 	public void removeAll(LoggedInUser account, PushApplication pushApplication, boolean destructive,
 			PostDelete action) {
-		UUID pushApplicationId = UUID.fromString(pushApplication.getPushApplicationID());
-
-		aliasDao.findUserIds(pushApplicationId).map(row -> aliasDao.findOne(pushApplicationId, row.getUUID(0)))
-				.filter(alias -> Objects.nonNull(alias)).forEach(alias -> {
-
-					// If not destructive, only aliases are deleted.
-					if (destructive) {
-						// KC users are registered by email
-						if (StringUtils.isNotEmpty(alias.getEmail()))
-							keycloakService.delete(account, alias.getEmail());
-
-						documentService.delete(pushApplicationId, alias);
-					}
-
-					aliasDao.remove(pushApplicationId, alias.getId());
-				});
-
-		if (destructive) {
-			keycloakService.removeClient(account, pushApplication);
-		}
+		deletionJob.run(account, pushApplication, destructive);
 
 		action.after();
 	}
@@ -239,7 +269,7 @@ public class AliasServiceImpl implements AliasService {
 	}
 
 	@Override
-	@Async
+	@Async(AsyncConfig.REGISTRATION_EXECUTOR)
 	public void createAsynchronous(LoggedInUser loggedInUser, Alias alias) {
 		create(loggedInUser, alias);
 	}
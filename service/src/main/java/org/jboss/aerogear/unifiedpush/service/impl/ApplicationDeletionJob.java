@@ -0,0 +1,246 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.service.impl;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Resource;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jboss.aerogear.unifiedpush.api.PushApplication;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.AliasDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DatabaseDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DeletionDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DocumentDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.DocumentKey;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Database;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Deletion;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
+import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
+import org.jboss.aerogear.unifiedpush.service.impl.spring.IKeycloakService;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
+import org.jboss.aerogear.unifiedpush.system.AsyncWindow;
+import org.jboss.aerogear.unifiedpush.system.ConfigurationEnvironment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+import com.datastax.driver.core.Row;
+
+/**
+ * Deletes the aliases of a push application, and when destructive their
+ * documents, Keycloak users and the application's Keycloak client.
+ *
+ * Aliases are streamed from their month partitions and each user is deleted
+ * by partition key with the driver's async API, a bounded number of users in
+ * flight. Nothing is read but the alias of each user, and only to find its
+ * Keycloak user.
+ *
+ * Progress is saved to a {@link Deletion} checkpoint every thousand users
+ * (by default). Deletions interrupted by a restart are resumed from their
+ * checkpoint once the context is started; deleting is idempotent, so several
+ * nodes may resume the same deletion.
+ */
+@Component
+public class ApplicationDeletionJob implements ApplicationListener<ContextRefreshedEvent> {
+	private final Logger logger = LoggerFactory.getLogger(ApplicationDeletionJob.class);
+
+	@Autowired
+	private AliasDao aliasDao;
+	@Autowired
+	private DocumentDao<DocumentContent, DocumentKey> documentDao;
+	@Autowired
+	private DatabaseDao databaseDao;
+	@Autowired
+	private DeletionDao deletionDao;
+	@Autowired
+	private IKeycloakService keycloakService;
+	@Autowired
+	private ConfigurationEnvironment environment;
+	@Autowired
+	private CacheManager cacheManager;
+	@Resource(name = AsyncConfig.DELETION_EXECUTOR)
+	private Executor deletionExecutor;
+
+	// Deletions running on this node, by application.
+	private final Map<UUID, Deletion> running = new ConcurrentHashMap<>();
+	private final LongAdder deletedUsers = new LongAdder();
+
+	/**
+	 * Deletes an application's aliases on the calling thread.
+	 */
+	public void run(LoggedInUser account, PushApplication pushApplication, boolean destructive) {
+		Deletion deletion = new Deletion(UUID.fromString(pushApplication.getPushApplicationID()),
+				pushApplication.getName(), account.get(), destructive);
+
+		deletionDao.save(deletion);
+		running.put(deletion.getPushApplicationId(), deletion);
+		execute(deletion);
+	}
+
+	/**
+	 * @return number of deletions running on this node.
+	 */
+	public int getRunning() {
+		return running.size();
+	}
+
+	/**
+	 * @return users deleted by this node since startup, updated at each
+	 *         checkpoint.
+	 */
+	public long getDeletedUsers() {
+		return deletedUsers.sum();
+	}
+
+	@Override
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		try {
+			deletionDao.findAll().forEach(deletion -> {
+				if (running.putIfAbsent(deletion.getPushApplicationId(), deletion) == null) {
+					logger.info("Resuming deletion of application {}, {} users already deleted",
+							deletion.getPushApplicationId(), deletion.getDeletedUsers());
+
+					deletionExecutor.execute(() -> execute(deletion));
+				}
+			});
+		} catch (RuntimeException e) {
+			logger.warn("Unable to resume interrupted application deletions", e);
+		}
+	}
+
+	private void execute(Deletion deletion) {
+		UUID pushApplicationId = deletion.getPushApplicationId();
+		LoggedInUser account = new LoggedInUser(deletion.getAccount());
+
+		try {
+			List<String> databases = deletion.isDestructive() ? databaseDao.find(pushApplicationId)
+					.map(Database::getDatabase).collect(Collectors.toList()) : Collections.emptyList();
+
+			AsyncWindow window = new AsyncWindow(environment.getDeletionConcurrency());
+			int interval = environment.getDeletionCheckpointInterval();
+			Map<Byte, UUID> checkpoints = new HashMap<>(deletion.getCheckpoints());
+			Queue<String> emails = new ConcurrentLinkedQueue<>();
+			int deleted = 0;
+
+			try (Stream<Row> rows = aliasDao.findUserIds(pushApplicationId, deletion.getCheckpoints())) {
+				for (Iterator<Row> it = rows.iterator(); it.hasNext();) {
+					Row row = it.next();
+					UUID userId = row.getUUID(0);
+
+					// One row per alias, rows of a user are adjacent within its
+					// month.
+					if (userId.equals(checkpoints.put(row.getByte(1), userId)))
+						continue;
+
+					window.submit(() -> delete(deletion, databases, userId, emails));
+					deleteKeycloakUsers(account, emails);
+
+					if (++deleted == interval) {
+						checkpoint(deletion, window, checkpoints, deleted, account, emails);
+						deleted = 0;
+					}
+				}
+			}
+
+			checkpoint(deletion, window, checkpoints, deleted, account, emails);
+
+			if (deletion.isDestructive()) {
+				documentDao.deleteDatabases(pushApplicationId);
+				keycloakService.removeClient(account, toPushApplication(deletion));
+			}
+
+			// Aliases were removed without evicting them one by one.
+			cacheManager.getCache(AliasDao.CACHE_NAME).clear();
+			deletionDao.deleteById(pushApplicationId);
+
+			logger.info("Deleted application {}, {} users", pushApplicationId, deletion.getDeletedUsers());
+		} catch (RuntimeException e) {
+			logger.error("Deletion of application {} interrupted, will resume from its last checkpoint on restart",
+					pushApplicationId, e);
+		} finally {
+			running.remove(pushApplicationId);
+		}
+	}
+
+	private CompletableFuture<Void> delete(Deletion deletion, List<String> databases, UUID userId,
+			Queue<String> emails) {
+		UUID pushApplicationId = deletion.getPushApplicationId();
+
+		if (!deletion.isDestructive())
+			return aliasDao.removeAsync(pushApplicationId, userId);
+
+		// KC users are registered by email, read before the alias is removed.
+		return aliasDao.findOneAsync(pushApplicationId, userId).thenCompose(alias -> {
+			if (alias != null && StringUtils.isNotEmpty(alias.getEmail()))
+				emails.add(alias.getEmail());
+
+			return documentDao.deleteAsync(pushApplicationId, databases, userId);
+		}).thenCompose(deleted -> aliasDao.removeAsync(pushApplicationId, userId));
+	}
+
+	// Saves progress once all users scanned so far are deleted.
+	private void checkpoint(Deletion deletion, AsyncWindow window, Map<Byte, UUID> checkpoints, int deleted,
+			LoggedInUser account, Queue<String> emails) {
+		window.drain();
+		deleteKeycloakUsers(account, emails);
+
+		deletion.setCheckpoints(new HashMap<>(checkpoints));
+		deletion.setDeletedUsers(deletion.getDeletedUsers() + deleted);
+		deletion.setUpdated(new Date());
+		deletionDao.save(deletion);
+		deletedUsers.add(deleted);
+
+		logger.debug("Deletion of application {}, {} users deleted", deletion.getPushApplicationId(),
+				deletion.getDeletedUsers());
+	}
+
+	// Keycloak calls are blocking, they are issued from the job thread rather
+	// than queued to the deletion executor the job itself runs on.
+	private void deleteKeycloakUsers(LoggedInUser account, Queue<String> emails) {
+		String email;
+		while ((email = emails.poll()) != null) {
+			keycloakService.deleteNow(account, email);
+		}
+	}
+
+	private static PushApplication toPushApplication(Deletion deletion) {
+		PushApplication pushApplication = new PushApplication();
+		pushApplication.setPushApplicationID(deletion.getPushApplicationId().toString());
+		pushApplication.setName(deletion.getApplicationName());
+
+		return pushApplication;
+	}
+}
@@ -9,6 +9,7 @@ import org.jboss.aerogear.unifiedpush.api.Installation;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.service.ClientInstallationAsyncService;
 import org.jboss.aerogear.unifiedpush.service.ClientInstallationService;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -23,22 +24,22 @@ public class ClientInstallationAsyncServiceImpl implements ClientInstallationAsy
 	@Inject
 	private ClientInstallationService clientInstallationService;
 
-	@Async
+	@Async(AsyncConfig.REGISTRATION_EXECUTOR)
 	public void addInstallation(Variant variant, Installation installation) {
 		clientInstallationService.addInstallation(variant, installation);
 	}
 
-	@Async
+	@Async(AsyncConfig.REGISTRATION_EXECUTOR)
 	public void addInstallations(Variant variant, List<Installation> installations) {
 		clientInstallationService.addInstallations(variant, installations);
 	}
 
-	@Async
+	@Async(AsyncConfig.CLEANUP_EXECUTOR)
 	public void removeInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens) {
 		clientInstallationService.removeInstallationsForVariantByDeviceTokens(variantID, deviceTokens);
 	}
 
-	@Async
+	@Async(AsyncConfig.CLEANUP_EXECUTOR)
 	public void removeInstallationForVariantByDeviceToken(String variantID, String deviceToken) {
 		clientInstallationService.removeInstallationForVariantByDeviceToken(variantID, deviceToken);
 	}
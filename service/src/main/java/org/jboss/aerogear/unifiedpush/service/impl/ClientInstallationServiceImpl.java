@@ -41,6 +41,9 @@ import org.jboss.aerogear.unifiedpush.service.impl.spring.IConfigurationService;
 import org.jboss.aerogear.unifiedpush.service.util.FCMTopicManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -71,6 +74,9 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 	@Inject
 	private IConfigurationService configuration;
 
+	@Inject
+	private CacheManager cacheManager;
+
 	@Override
 	public Variant associateInstallation(Installation installation, Variant currentVariant) {
 		if (installation.getAlias() == null) {
@@ -206,6 +212,7 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 	@Override
 	public void updateInstallation(Installation installation) {
 		installationDao.update(installation);
+		evictMissing(installation.getVariant(), installation.getDeviceToken());
 	}
 
 	@Override
@@ -242,12 +249,11 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 	}
 
 	@Override
-	public void removeInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens) {
-		// collect inactive installations for the given variant:
-		List<Installation> inactiveInstallations = installationDao.findInstallationsForVariantByDeviceTokens(variantID,
-				deviceTokens);
-		// get rid of them
-		this.removeInstallations(inactiveInstallations);
+	public int removeInstallationsForVariantByDeviceTokens(String variantID, Set<String> deviceTokens) {
+		// get rid of inactive installations for the given variant, without loading them
+		int removed = installationDao.deleteInstallationsForVariantByDeviceTokens(variantID, deviceTokens);
+		logger.debug("Removed {} inactive installations for variant {}", removed, variantID);
+		return removed;
 	}
 
 	@Override
@@ -260,6 +266,11 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 		return installationDao.findInstallationForVariantByDeviceToken(variantID, deviceToken);
 	}
 
+	@Override
+	public Installation findInstallationForAuthentication(String variantID, String deviceToken) {
+		return findInstallationForVariantByDeviceToken(variantID, deviceToken);
+	}
+
 	@Override
 	public void unsubscribeOldTopics(Installation installation) {
 		FCMTopicManager topicManager = new FCMTopicManager((AndroidVariant) installation.getVariant());
@@ -340,7 +351,6 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 	 * Helper to set references and perform the actual storage
 	 */
 	protected void storeInstallationAndSetReferences(Variant variant, Installation entity) {
-
 		// ensure lower case for iOS
 		if (variant.getType() == VariantType.IOS) {
 			entity.setDeviceToken(entity.getDeviceToken().toLowerCase());
@@ -351,6 +361,16 @@ public class ClientInstallationServiceImpl implements ClientInstallationService
 		mergeCategories(entity, entity.getCategories());
 		// store Installation entity
 		installationDao.create(entity);
+		// token is stored (and cached as missing) in its normalized form
+		evictMissing(variant, entity.getDeviceToken());
+	}
+
+	// Unknown device tokens are cached by variantID and token.
+	private void evictMissing(Variant variant, String deviceToken) {
+		if (variant != null && deviceToken != null) {
+			Cache cache = cacheManager.getCache(ClientInstallationService.MISSING_CACHE_NAME);
+			cache.evict(new SimpleKey(variant.getVariantID(), deviceToken));
+		}
 	}
 
 	@Override
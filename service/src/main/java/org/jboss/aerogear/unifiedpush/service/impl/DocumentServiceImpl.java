@@ -3,19 +3,25 @@ package org.jboss.aerogear.unifiedpush.service.impl;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import org.jboss.aerogear.unifiedpush.api.Alias;
 import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.document.DocumentMetadata;
 import org.jboss.aerogear.unifiedpush.api.document.QueryOptions;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.AliasDao;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.DocumentDao;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.impl.DocumentKey;
 import org.jboss.aerogear.unifiedpush.cassandra.dao.model.DocumentContent;
 import org.jboss.aerogear.unifiedpush.service.DocumentService;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
 import org.jboss.aerogear.unifiedpush.system.ConfigurationEnvironment;
+import org.jboss.aerogear.unifiedpush.system.FanOut;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -27,6 +33,8 @@ import org.springframework.transaction.annotation.Transactional;
 public class DocumentServiceImpl implements DocumentService {
 	@Autowired
 	private DocumentDao<DocumentContent, DocumentKey> documentDao;
+	@Autowired
+	private AliasDao aliasDao;
 
 	@Autowired
 	private ConfigurationEnvironment configuration;
@@ -42,13 +50,44 @@ public class DocumentServiceImpl implements DocumentService {
 
 	@Override
 	public Stream<DocumentContent> find(DocumentMetadata metadata, QueryOptions options) {
-		// Always query X days period in case from date or limit are missing
+		applyDefaultPeriod(options);
+
+		return (Stream<DocumentContent>) documentDao.find(new DocumentKey(metadata), options);
+	}
+
+	@Override
+	public long count(DocumentMetadata metadata, QueryOptions options) {
+		applyDefaultPeriod(options);
+
+		return documentDao.count(new DocumentKey(metadata), options);
+	}
+
+	@Override
+	public CompletableFuture<Void> findForAliases(UUID pushApplicationId, String database, Collection<UUID> userIds,
+			QueryOptions options, Consumer<DocumentContent> onDocument, Consumer<UUID> onUnknown) {
+		applyDefaultPeriod(options);
+
+		// Both the alias lookup and the partition read are async, a window of
+		// users is in flight at any time.
+		return FanOut.forEach(userIds, configuration.getQueryConcurrency(),
+				userId -> aliasDao.findOneAsync(pushApplicationId, userId).thenCompose(alias -> {
+					if (alias == null) {
+						onUnknown.accept(userId);
+						return CompletableFuture.<Void> completedFuture(null);
+					}
+
+					DocumentMetadata metadata = new DocumentMetadata(pushApplicationId, database, userId);
+					return documentDao.findAsync(new DocumentKey(metadata), options)
+							.thenAccept(docs -> docs.forEach(onDocument));
+				}));
+	}
+
+	// Always query X days period in case from date or limit are missing
+	private void applyDefaultPeriod(QueryOptions options) {
 		if (options != null && options.getFromDate() == null && options.getLimit() == null) {
 			options.setFromDate(LocalDateTime.now().minusDays(configuration.getQueryDefaultPeriodInDays())
 					.toInstant(ZoneOffset.UTC).toEpochMilli());
 		}
-
-		return (Stream<DocumentContent>) documentDao.find(new DocumentKey(metadata), options);
 	}
 
 	@Override
@@ -84,7 +123,7 @@ public class DocumentServiceImpl implements DocumentService {
 	}
 
 	@Override
-	@Async
+	@Async(AsyncConfig.DELETION_EXECUTOR)
 	public void delete(String pushApplicationId) {
 		documentDao.delete(UUID.fromString(pushApplicationId));
 	}
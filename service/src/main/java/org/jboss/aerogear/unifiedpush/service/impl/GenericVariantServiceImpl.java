@@ -16,6 +16,10 @@
  */
 package org.jboss.aerogear.unifiedpush.service.impl;
 
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
 import javax.inject.Inject;
 
 import org.jboss.aerogear.unifiedpush.api.Variant;
@@ -57,6 +61,14 @@ public class GenericVariantServiceImpl implements GenericVariantService {
 		return variantDao.findByVariantID(variantID);
 	}
 
+	@Override
+	public <T extends Variant> List<T> findVariantsWithMessagesSince(Class<T> type, Date since) {
+		return variantDao.findVariantsWithMessagesSince(since).stream()
+				.filter(type::isInstance)
+				.map(type::cast)
+				.collect(Collectors.toList());
+	}
+
 	/*
 	 * Cacheable service
 	 */
@@ -24,6 +24,7 @@ import org.jboss.aerogear.unifiedpush.jpa.dao.impl.JPAHealthDao;
 import org.jboss.aerogear.unifiedpush.service.HealthDBService;
 import org.jboss.aerogear.unifiedpush.service.impl.health.HealthDetails;
 import org.jboss.aerogear.unifiedpush.service.impl.health.Status;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
@@ -33,7 +34,7 @@ public class HealthServiceImpl implements HealthDBService {
     @Inject
     private JPAHealthDao healthDao;
 
-    @Async
+    @Async(AsyncConfig.HEALTH_EXECUTOR)
     @Override
     public Future<HealthDetails> dbStatus() {
         HealthDetails details = new HealthDetails();
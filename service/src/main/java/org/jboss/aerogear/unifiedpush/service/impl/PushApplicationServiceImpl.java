@@ -24,8 +24,6 @@ import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.dao.PushApplicationDao;
 import org.jboss.aerogear.unifiedpush.service.AliasService;
-import org.jboss.aerogear.unifiedpush.service.DocumentService;
-import org.jboss.aerogear.unifiedpush.service.PostDelete;
 import org.jboss.aerogear.unifiedpush.service.PushApplicationService;
 import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
 import org.jboss.aerogear.unifiedpush.service.impl.spring.IKeycloakService;
@@ -44,8 +42,6 @@ public class PushApplicationServiceImpl implements PushApplicationService {
 	@Autowired
 	private ConfigurationEnvironment configuration;
 	@Inject
-	private DocumentService documentService;
-	@Inject
 	private AliasService aliasService;
 	@Inject
 	private IKeycloakService keycloakService;
@@ -102,16 +98,10 @@ public class PushApplicationServiceImpl implements PushApplicationService {
 		evictById(pushApp.getPushApplicationID());
 		evictByName(pushApp.getName());
 
-		// @Async delete aliases
-		aliasService.removeAll(account, pushApp, true, new PostDelete() {
-
-			@Override
-			public void after() {
-				// @Async delete any application documents.
-				// Alias documents already removed by aliasService
-				// This must be called after alias documents were removed.
-				documentService.delete(pushApp.getPushApplicationID());
-			}
+		// @Async delete aliases, their documents and the application
+		// databases, see ApplicationDeletionJob.
+		aliasService.removeAll(account, pushApp, true, () -> {
+			// Nothing left once aliases are deleted.
 		});
 
 		// Delete push application
@@ -21,6 +21,9 @@ public interface IKeycloakService {
 
 	void delete(LoggedInUser accountName, String userName);
 
+	// Same as delete, but on the calling thread.
+	void deleteNow(LoggedInUser accountName, String userName);
+
 	@Cacheable(value = IKeycloakService.CACHE_NAME, unless = "#result == null")
 	List<String> getVariantIdsFromClient(LoggedInUser accountName, String clientId);
 
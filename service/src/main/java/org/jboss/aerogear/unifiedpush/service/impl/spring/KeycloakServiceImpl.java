@@ -18,6 +18,7 @@ import org.jboss.aerogear.unifiedpush.api.PushApplication;
 import org.jboss.aerogear.unifiedpush.api.Variant;
 import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
 import org.jboss.aerogear.unifiedpush.service.impl.spring.OAuth2Configuration.DomainMatcher;
+import org.jboss.aerogear.unifiedpush.spring.AsyncConfig;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.keycloak.admin.client.Keycloak;
 import org.keycloak.admin.client.KeycloakBuilder;
@@ -336,8 +337,13 @@ public class KeycloakServiceImpl implements IKeycloakService {
 		return true;
 	}
 
-	@Async
+	@Async(AsyncConfig.DELETION_EXECUTOR)
 	public void delete(LoggedInUser accountName, String userName) {
+		deleteNow(accountName, userName);
+	}
+
+	@Override
+	public void deleteNow(LoggedInUser accountName, String userName) {
 		if (!isInitialized()) {
 			return;
 		}
@@ -0,0 +1,103 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.spring;
+
+import java.util.concurrent.Executor;
+
+import org.jboss.aerogear.unifiedpush.spring.WorkloadExecutor.Policy;
+import org.jboss.aerogear.unifiedpush.system.VirtualThreads;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Executes the <code>@Async</code> service methods, one {@link WorkloadExecutor} per class of work, so a storm of
+ * registrations cannot delay health checks or pile up unbounded.
+ *
+ * <ul>
+ * <li><code>registration</code>: installations and aliases created asynchronously, runs on the caller when full</li>
+ * <li><code>cleanup</code>: removal of invalid device tokens reported by push networks, dropped when full</li>
+ * <li><code>deletion</code>: removal of aliases, documents and users of deleted applications, runs on the caller when full</li>
+ * <li><code>health</code>: health checks, runs on the caller when full</li>
+ * </ul>
+ *
+ * Asynchronous execution is opt-in, enabled together with virtual threads (see {@link VirtualThreads}). Otherwise
+ * <code>@Async</code> methods keep running on the caller, e.g. an application is fully removed once its removal returns.
+ */
+@Configuration
+public class AsyncConfig implements AsyncConfigurer {
+
+	public static final String REGISTRATION_EXECUTOR = "registrationExecutor";
+	public static final String CLEANUP_EXECUTOR = "cleanupExecutor";
+	public static final String DELETION_EXECUTOR = "deletionExecutor";
+	public static final String HEALTH_EXECUTOR = "healthExecutor";
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	@Bean(name = REGISTRATION_EXECUTOR, destroyMethod = "shutdown")
+	public WorkloadExecutor registrationExecutor() {
+		return WorkloadExecutor.create("registration", CORES * 2, 10000, Policy.callerRuns);
+	}
+
+	@Bean(name = CLEANUP_EXECUTOR, destroyMethod = "shutdown")
+	public WorkloadExecutor cleanupExecutor() {
+		return WorkloadExecutor.create("cleanup", CORES, 10000, Policy.shed);
+	}
+
+	@Bean(name = DELETION_EXECUTOR, destroyMethod = "shutdown")
+	public WorkloadExecutor deletionExecutor() {
+		return WorkloadExecutor.create("deletion", 2, 1000, Policy.callerRuns);
+	}
+
+	@Bean(name = HEALTH_EXECUTOR, destroyMethod = "shutdown")
+	public WorkloadExecutor healthExecutor() {
+		return WorkloadExecutor.create("health", 2, 100, Policy.callerRuns);
+	}
+
+	/**
+	 * Used by <code>@Async</code> methods not naming their executor.
+	 */
+	@Override
+	public Executor getAsyncExecutor() {
+		return registrationExecutor();
+	}
+
+	@Override
+	public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+		return new SimpleAsyncUncaughtExceptionHandler();
+	}
+
+	@Configuration
+	@EnableAsync
+	@Conditional(VirtualThreadsEnabled.class)
+	static class AsyncEnabledConfig {
+	}
+
+	static class VirtualThreadsEnabled implements Condition {
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return VirtualThreads.isEnabled();
+		}
+	}
+}
@@ -10,7 +10,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
 @Configuration
-@Import({ ConfigurationEnvironment.class, ServiceCacheConfig.class, JPAConfig.class })
+@Import({ ConfigurationEnvironment.class, ServiceCacheConfig.class, AsyncConfig.class, JPAConfig.class })
 @ComponentScan(basePackageClasses = { OtpCodeService.class, IConfigurationService.class, IPushMessageMetricsService.class })
 public class ServiceConfig {
 
@@ -0,0 +1,128 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 	http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.spring;
+
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetIntegerProperty;
+import static org.jboss.aerogear.unifiedpush.system.ConfigurationUtils.tryGetProperty;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jboss.aerogear.unifiedpush.system.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread pool of one class of <code>@Async</code> work, e.g. registrations, with a bounded queue.
+ *
+ * Sized by <code>aerogear.async.&lt;name&gt;.threads</code> and <code>aerogear.async.&lt;name&gt;.queueSize</code>.
+ * Once the queue is full, <code>aerogear.async.&lt;name&gt;.policy</code> decides: <code>callerRuns</code> executes the
+ * task on the submitting thread, slowing the producer down, <code>shed</code> drops it. Both are counted as rejected.
+ *
+ * If enabled by {@link VirtualThreads}, the pool creates virtual threads, so it can be given many more threads.
+ *
+ * The load of every executor is published under <code>/sys/info/executors</code>.
+ */
+public class WorkloadExecutor extends ThreadPoolExecutor {
+
+	public enum Policy {
+		callerRuns, shed
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkloadExecutor.class);
+
+	private final String name;
+	private final LongAdder rejected;
+
+	private WorkloadExecutor(String name, int threads, int queueSize, ThreadFactory threadFactory,
+			RejectedExecutionHandler handler, LongAdder rejected) {
+		super(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), threadFactory, handler);
+		allowCoreThreadTimeOut(true);
+		this.name = name;
+		this.rejected = rejected;
+	}
+
+	/**
+	 * Creates the executor, reading its configuration from system properties.
+	 *
+	 * @param name the name of the workload, e.g. <code>registration</code>
+	 * @param threads the default number of threads
+	 * @param queueSize the default number of waiting tasks
+	 * @param policy the default policy for tasks not fitting into the queue
+	 *
+	 * @return the executor
+	 */
+	public static WorkloadExecutor create(String name, int threads, int queueSize, Policy policy) {
+		final String prefix = "aerogear.async." + name + ".";
+		final Policy configuredPolicy = Policy.valueOf(tryGetProperty(prefix + "policy", policy.name()));
+		final LongAdder rejected = new LongAdder();
+
+		final RejectedExecutionHandler handler = (task, executor) -> {
+			rejected.increment();
+			if (executor.isShutdown()) {
+				return;
+			}
+
+			if (configuredPolicy == Policy.callerRuns) {
+				task.run();
+			} else {
+				logger.warn("{} queue is full, dropping task", name);
+			}
+		};
+
+		return new WorkloadExecutor(name,
+				Math.max(1, tryGetIntegerProperty(prefix + "threads", threads)),
+				Math.max(1, tryGetIntegerProperty(prefix + "queueSize", queueSize)),
+				threadFactory(name), handler, rejected);
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		if (VirtualThreads.isEnabled()) {
+			return VirtualThreads.newThreadFactory(name + "-");
+		}
+
+		final AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			final Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return number of tasks waiting for a thread
+	 */
+	public int getQueueDepth() {
+		return getQueue().size();
+	}
+
+	/**
+	 * @return number of tasks which did not fit into the queue, run by the caller or dropped
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+}
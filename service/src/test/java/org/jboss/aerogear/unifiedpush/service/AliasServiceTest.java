@@ -98,6 +98,28 @@ public class AliasServiceTest extends AbstractCassandraServiceTest {
 		});
 	}
 
+	@Test
+	@Transactional
+	public void testAddAllWithoutIds() throws IOException {
+		PushApplication pushApplication = new PushApplication();
+		UUID pushAppId = UUID.fromString(pushApplication.getPushApplicationID());
+
+		List<Alias> aliases = aliasService.addAll(account, pushApplication,
+				Arrays.asList(new Alias(pushAppId, null, "Supprot@AeroBase.org"),
+						new Alias(pushAppId, null, "Test@AeroBase.org")),
+				false);
+		aliases.forEach(alias -> {
+			assertThat(alias.getId()).isNotNull();
+		});
+
+		// Same emails, existing users are kept and their aliases replaced.
+		Alias support = new Alias(pushAppId, null, "Supprot@AeroBase.org", "5551234");
+		aliasService.addAll(account, pushApplication, Arrays.asList(support), false);
+
+		assertThat(support.getId()).isEqualTo(aliases.get(0).getId());
+		assertThat(aliasService.find(pushAppId, support.getId()).getOther()).isEqualTo("5551234");
+	}
+
 	@Test
 	@Transactional
 	public void testRemoveAlias() throws IOException {
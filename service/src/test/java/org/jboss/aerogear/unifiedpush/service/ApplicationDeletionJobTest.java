@@ -0,0 +1,102 @@
+/**
+ * JBoss, Home of Professional Open Source
+ * Copyright Red Hat, Inc., and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.aerogear.unifiedpush.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+import org.jboss.aerogear.unifiedpush.api.Alias;
+import org.jboss.aerogear.unifiedpush.api.PushApplication;
+import org.jboss.aerogear.unifiedpush.api.document.DocumentMetadata;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.AliasDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.DeletionDao;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.Deletion;
+import org.jboss.aerogear.unifiedpush.cassandra.dao.model.User;
+import org.jboss.aerogear.unifiedpush.service.annotations.LoggedInUser;
+import org.jboss.aerogear.unifiedpush.service.impl.ApplicationDeletionJob;
+import org.junit.Test;
+
+import com.datastax.driver.core.utils.UUIDs;
+
+public class ApplicationDeletionJobTest extends AbstractCassandraServiceTest {
+	private static final LoggedInUser account = new LoggedInUser(DEFAULT_USER);
+
+	@Inject
+	private ApplicationDeletionJob deletionJob;
+	@Inject
+	private AliasDao aliasDao;
+	@Inject
+	private DeletionDao deletionDao;
+	@Inject
+	private DocumentService documentService;
+
+	@Test
+	public void testDeleteApplication() {
+		PushApplication pushApplication = new PushApplication();
+		List<Alias> aliases = createAliases(pushApplication);
+		documentService.save(new DocumentMetadata(pushApplication.getPushApplicationID(), "TASKS", aliases.get(0)),
+				"{SIMPLE}", "1");
+
+		deletionJob.run(account, pushApplication, true);
+
+		aliases.forEach(alias -> {
+			assertThat(aliasDao.findOne(alias.getPushApplicationId(), alias.getId())).isNull();
+		});
+		assertThat(documentService.findLatest(pushApplication, "TASKS", "1", aliases)).isEmpty();
+		assertThat(deletionDao.findById(aliases.get(0).getPushApplicationId()).isPresent()).isFalse();
+	}
+
+	@Test
+	public void testResumeFromCheckpoint() {
+		PushApplication pushApplication = new PushApplication();
+		List<Alias> aliases = createAliases(pushApplication);
+		Alias newest = aliases.get(aliases.size() - 1);
+
+		// Interrupted once the newest user of its month was deleted.
+		Deletion deletion = new Deletion(newest.getPushApplicationId(), pushApplication.getName(), DEFAULT_USER,
+				false);
+		deletion.getCheckpoints().put(User.copy(newest, newest.getEmail(), 0).getMonth(), newest.getId());
+		deletion.setDeletedUsers(1);
+		deletionDao.save(deletion);
+
+		deletionJob.onApplicationEvent(null);
+		sleepSilently(500);
+
+		// Users before the checkpoint are not scanned again.
+		assertThat(aliasDao.findOne(newest.getPushApplicationId(), newest.getId())).isNotNull();
+		aliases.subList(0, aliases.size() - 1).forEach(alias -> {
+			assertThat(aliasDao.findOne(alias.getPushApplicationId(), alias.getId())).isNull();
+		});
+		assertThat(deletionDao.findById(newest.getPushApplicationId()).isPresent()).isFalse();
+	}
+
+	private List<Alias> createAliases(PushApplication pushApplication) {
+		UUID pushApplicationId = UUID.fromString(pushApplication.getPushApplicationID());
+
+		List<Alias> aliases = Arrays.asList(new Alias(pushApplicationId, UUIDs.timeBased(), "Supprot@AeroBase.org"),
+				new Alias(pushApplicationId, UUIDs.timeBased(), "Test@AeroBase.org"),
+				new Alias(pushApplicationId, UUIDs.timeBased(), "Help@AeroBase.org"));
+		aliases.forEach(alias -> aliasDao.create(alias));
+
+		return aliases;
+	}
+}
@@ -123,6 +123,41 @@ public class ClientInstallationServiceTest extends AbstractCassandraServiceTest
 				.hasSize(2);
 	}
 
+	@Test
+	@Transactional
+	public void testMissingInstallationCache() {
+		String deviceToken = TestUtils.generateFakedDeviceTokenString();
+		assertThat(clientInstallationService.findInstallationForAuthentication(androidVariant.getVariantID(),
+				deviceToken)).isNull();
+
+		// Unknown token is forgotten once registered.
+		Installation device = new Installation();
+		device.setDeviceToken(deviceToken);
+		clientInstallationService.addInstallation(androidVariant, device);
+
+		assertThat(clientInstallationService.findInstallationForAuthentication(androidVariant.getVariantID(),
+				deviceToken)).isNotNull();
+	}
+
+	@Test
+	@Transactional
+	public void testMissingInstallationCacheOnTokenUpdate() {
+		Installation device = new Installation();
+		device.setDeviceToken(TestUtils.generateFakedDeviceTokenString());
+		clientInstallationService.addInstallation(androidVariant, device);
+
+		String deviceToken = TestUtils.generateFakedDeviceTokenString();
+		assertThat(clientInstallationService.findInstallationForAuthentication(androidVariant.getVariantID(),
+				deviceToken)).isNull();
+
+		// Unknown token is forgotten once an installation is updated to it.
+		device.setDeviceToken(deviceToken);
+		clientInstallationService.updateInstallation(device);
+
+		assertThat(clientInstallationService.findInstallationForAuthentication(androidVariant.getVariantID(),
+				deviceToken)).isNotNull();
+	}
+
 	@Test
 	@Transactional
 	public void registerDevicesWithCategories() {
@@ -4,8 +4,10 @@ import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -404,4 +406,32 @@ public class DocumentServiceTest extends AbstractCassandraServiceTest {
 			Assert.fail(e.getMessage());
 		}
 	}
+
+	@Test
+	public void testFindForAliases() throws Exception {
+		UUID pushApplicationId = UUID.randomUUID();
+
+		List<Alias> aliases = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			Alias alias = new Alias(pushApplicationId, UUIDs.timeBased(), "fanout" + i + "@aerobase.org");
+			aliasService.create(account, alias);
+			documentService.save(new DocumentMetadata(pushApplicationId.toString(), "FANOUT", alias),
+					"{CONTENT" + i + "}", "ID1");
+			aliases.add(alias);
+		}
+
+		List<UUID> userIds = aliases.stream().map(Alias::getId).collect(Collectors.toList());
+		UUID unknown = UUIDs.timeBased();
+		userIds.add(unknown);
+
+		List<String> contents = Collections.synchronizedList(new ArrayList<>());
+		List<UUID> ignored = Collections.synchronizedList(new ArrayList<>());
+
+		documentService.findForAliases(pushApplicationId, "FANOUT", userIds, new QueryOptions(), //
+				doc -> contents.add(doc.getContent()), ignored::add).get(10, TimeUnit.SECONDS);
+
+		Assert.assertEquals(40, contents.size());
+		Assert.assertTrue(contents.contains("{CONTENT0}") && contents.contains("{CONTENT39}"));
+		Assert.assertEquals(Arrays.asList(unknown), ignored);
+	}
 }
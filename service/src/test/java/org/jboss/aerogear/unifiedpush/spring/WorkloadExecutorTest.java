@@ -0,0 +1,61 @@
+package org.jboss.aerogear.unifiedpush.spring;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.aerogear.unifiedpush.spring.WorkloadExecutor.Policy;
+import org.junit.After;
+import org.junit.Test;
+
+public class WorkloadExecutorTest {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private WorkloadExecutor executor;
+
+	@After
+	public void shutdown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldRunOnCallerWhenQueueIsFull() {
+		executor = WorkloadExecutor.create("test-caller-runs", 1, 1, Policy.callerRuns);
+		fill();
+
+		final AtomicReference<Thread> thread = new AtomicReference<>();
+		executor.execute(() -> thread.set(Thread.currentThread()));
+
+		assertThat(thread.get()).isSameAs(Thread.currentThread());
+		assertThat(executor.getRejectedCount()).isEqualTo(1);
+		assertThat(executor.getQueueDepth()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldDropWhenQueueIsFull() {
+		executor = WorkloadExecutor.create("test-shed", 1, 1, Policy.shed);
+		fill();
+
+		final AtomicReference<Thread> thread = new AtomicReference<>();
+		executor.execute(() -> thread.set(Thread.currentThread()));
+
+		assertThat(thread.get()).isNull();
+		assertThat(executor.getRejectedCount()).isEqualTo(1);
+		assertThat(executor.getQueueDepth()).isEqualTo(1);
+	}
+
+	// occupies the only thread and the only queue slot
+	private void fill() {
+		for (int i = 0; i < 2; i++) {
+			executor.execute(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+	}
+}